@@ -0,0 +1,158 @@
+package com.sadraskol.peg.benchmarks;
+
+import com.sadraskol.peg.Model;
+import com.sadraskol.peg.Options;
+import com.sadraskol.peg.Runner;
+import com.sadraskol.peg.Session;
+import com.sadraskol.peg.SpecCache;
+import com.sadraskol.peg.backend.Evaluator;
+import com.sadraskol.peg.engine.Engine;
+import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Propositions;
+import com.sadraskol.peg.engine.Tseitin;
+import com.sadraskol.peg.parser.Declaration;
+import com.sadraskol.peg.parser.Parser;
+import com.sadraskol.peg.scanner.Scanner;
+import com.sadraskol.peg.scanner.Token;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+// One benchmark per phase of Runner, each fed with the output of the previous phases. Run with
+// `java -jar target/benchmarks.jar -prof gc` to get the allocation rate next to the throughput.
+// A relation has records squared pairs, so the largest sizes need a large heap: run them alone
+// with `-p records=1000,5000 -jvmArgsAppend "--enable-preview -Xmx16g"`.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+  @Param({"10", "50", "200", "1000", "5000"})
+  public int records;
+
+  @Param({"1", "4"})
+  public int relations;
+
+  @Param({"2", "8"})
+  public int constraints;
+
+  private String source;
+  private final Options cached = Options.defaults().withCache(new SpecCache(16, 1_000_000));
+  private List<Token> tokens;
+  private List<Declaration> declarations;
+  private List<Proposition> propositions;
+  private List<Proposition> grounded;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    source = new SpecGenerator(records, relations, constraints).source();
+    tokens = new Scanner(source).scan();
+    declarations = new Parser(tokens).parse();
+    propositions = new Engine(declarations).propositions();
+    grounded = ground(propositions);
+  }
+
+  @Benchmark
+  public List<Token> scan() {
+    return new Scanner(source).scan();
+  }
+
+  @Benchmark
+  public List<Declaration> parse() {
+    return new Parser(tokens).parse();
+  }
+
+  @Benchmark
+  public List<Proposition> engine() {
+    return new Engine(declarations).propositions();
+  }
+
+  @Benchmark
+  public List<Proposition> ground() {
+    return ground(propositions);
+  }
+
+  @Benchmark
+  public List<Proposition> distributiveConjunctiveNormalForm() {
+    var factory = new Propositions();
+    var clauses = new ArrayList<Proposition>();
+    for (var proposition : grounded) {
+      clauses.addAll(
+          factory.conjunctiveNormalForm(proposition).splitConjonctiveNormalForm().toList());
+    }
+    return clauses;
+  }
+
+  @Benchmark
+  public List<Proposition> tseitinConjunctiveNormalForm() {
+    var tseitin = new Tseitin();
+    var clauses = new ArrayList<Proposition>();
+    for (var proposition : grounded) {
+      clauses.addAll(
+          tseitin.conjunctiveNormalForm(proposition).splitConjonctiveNormalForm().toList());
+    }
+    return clauses;
+  }
+
+  @Benchmark
+  public Optional<Model> sat(SessionState state) throws TimeoutException {
+    return state.session.solve();
+  }
+
+  @Benchmark
+  public Map<String, com.sadraskol.peg.engine.Set> run()
+      throws ContradictionException, TimeoutException {
+    return new Runner(source).run();
+  }
+
+  // Same spec every time, so only its facts are compiled after the first run.
+  @Benchmark
+  public Map<String, com.sadraskol.peg.engine.Set> runCached()
+      throws ContradictionException, TimeoutException {
+    return new Runner(source, cached).run();
+  }
+
+  private static List<Proposition> ground(List<Proposition> propositions) {
+    var evaluator = new Evaluator();
+    var grounded = new ArrayList<Proposition>();
+    for (var proposition : propositions) {
+      grounded.add(evaluator.evaluate(proposition));
+    }
+    return grounded;
+  }
+
+  @State(Scope.Thread)
+  public static class SessionState {
+    private Session session;
+
+    @Setup(Level.Invocation)
+    public void setup(PipelineBenchmark benchmark) throws ContradictionException, TimeoutException {
+      session = new Runner(benchmark.source).session();
+    }
+
+    // Sessions hold solver and grounding threads, which must not pile up across invocations.
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+      session.close();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.sadraskol.peg.benchmarks;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public record SpecGenerator(int records, int relations, int constraints) {
+  public String source() {
+    var builder = new StringBuilder();
+    builder.append("record Target(identity name: String) {}\n");
+    builder.append("record Source(identity name: String) {\n");
+    for (var relation = 0; relation < relations; relation++) {
+      builder.append("  relation r").append(relation).append(": Target\n");
+    }
+    builder.append("}\n\n");
+
+    builder.append("facts {\n");
+    builder.append("  Target = { ").append(elements("t")).append(" }\n");
+    builder.append("  Source = { ").append(elements("s")).append(" }\n");
+    builder.append("}\n\n");
+
+    for (var constraint = 0; constraint < constraints; constraint++) {
+      var relation = "r" + (constraint % relations);
+      builder.append("constraint {\n");
+      if (constraint % 2 == 0) {
+        builder.append("  forall s in Source: exists t in Target: s.");
+      } else {
+        builder.append("  forall t in Target: exists s in Source: s.");
+      }
+      builder.append(relation).append(" = t\n");
+      builder.append("}\n\n");
+    }
+    return builder.toString();
+  }
+
+  private String elements(String prefix) {
+    return IntStream.range(0, records)
+        .mapToObj(i -> "\"" + prefix + i + "\"")
+        .collect(Collectors.joining(", "));
+  }
+}
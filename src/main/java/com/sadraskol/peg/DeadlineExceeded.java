@@ -0,0 +1,47 @@
+package com.sadraskol.peg;
+
+import java.util.Map;
+import java.util.Optional;
+import org.sat4j.specs.TimeoutException;
+
+// Reports how far a run got before its deadline fired: the phase it was in and the metrics
+// gathered so far, such as the number of propositions grounded and clauses translated. An
+// optimization that found models before the deadline also reports the best of them.
+public class DeadlineExceeded extends TimeoutException {
+  private static final long serialVersionUID = 1L;
+
+  private final Metrics.Phase phase;
+  private final transient Map<String, Number> progress;
+  private final transient Model best;
+
+  public DeadlineExceeded(Metrics metrics, Throwable cause) {
+    super(
+        "Deadline exceeded during "
+            + metrics.phase().name().toLowerCase()
+            + ": "
+            + metrics.toJson(),
+        cause);
+    this.phase = metrics.phase();
+    this.progress = metrics.toMap();
+    this.best = null;
+  }
+
+  public DeadlineExceeded(DeadlineExceeded exceeded, Model best) {
+    super(exceeded.getMessage(), exceeded.getCause());
+    this.phase = exceeded.phase;
+    this.progress = exceeded.progress;
+    this.best = best;
+  }
+
+  public Metrics.Phase phase() {
+    return phase;
+  }
+
+  public Map<String, Number> progress() {
+    return progress;
+  }
+
+  public Optional<Model> best() {
+    return Optional.ofNullable(best);
+  }
+}
@@ -0,0 +1,190 @@
+package com.sadraskol.peg;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+public class Metrics {
+  private static final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public enum Phase {
+    Scan,
+    Parse,
+    Engine,
+    Ground,
+    Cnf,
+    Translate,
+    Solve,
+    Decode
+  }
+
+  public record Mark(Phase phase, long nanos, long bytes) {}
+
+  // Threads of a pool doing work for the thread that times the phase. Their allocation counts
+  // toward it, and threads that exit hand over their final count so the total never goes back.
+  private static final class Workers implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final java.util.Set<Thread> alive = new HashSet<>();
+    private long retired = 0;
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      return new ForkJoinWorkerThread(pool) {
+        @Override
+        protected void onStart() {
+          super.onStart();
+          synchronized (Workers.this) {
+            alive.add(this);
+          }
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+          synchronized (Workers.this) {
+            alive.remove(this);
+            retired += Math.max(0, threads.getCurrentThreadAllocatedBytes());
+          }
+          super.onTermination(exception);
+        }
+      };
+    }
+
+    synchronized long allocatedBytes() {
+      var bytes = retired;
+      for (var thread : alive) {
+        bytes += Math.max(0, threads.getThreadAllocatedBytes(thread.threadId()));
+      }
+      return bytes;
+    }
+  }
+
+  private final AtomicLongArray nanos;
+  private final AtomicLongArray bytes;
+  private final LongAdder propositions;
+  private final LongAdder clauses;
+  private final LongAdder literals;
+  private final LongAdder terms;
+  private final Map<String, Number> solver;
+  private final List<Workers> workers;
+  private volatile Phase phase;
+
+  public Metrics() {
+    this.nanos = new AtomicLongArray(Phase.values().length);
+    this.bytes = new AtomicLongArray(Phase.values().length);
+    this.propositions = new LongAdder();
+    this.clauses = new LongAdder();
+    this.literals = new LongAdder();
+    this.terms = new LongAdder();
+    this.solver = new ConcurrentHashMap<>();
+    this.workers = new CopyOnWriteArrayList<>();
+    this.phase = Phase.Scan;
+  }
+
+  public Mark start(Phase phase) {
+    this.phase = phase;
+    return new Mark(phase, System.nanoTime(), allocatedBytes());
+  }
+
+  public void stop(Mark mark) {
+    nanos.addAndGet(mark.phase().ordinal(), System.nanoTime() - mark.nanos());
+    bytes.addAndGet(mark.phase().ordinal(), allocatedBytes() - mark.bytes());
+  }
+
+  // Thread factory for a pool that works on behalf of timed phases, such as parallel grounding.
+  // Phases then report the bytes allocated by the calling thread and by the pool's threads.
+  public ForkJoinPool.ForkJoinWorkerThreadFactory workers() {
+    var factory = new Workers();
+    workers.add(factory);
+    return factory;
+  }
+
+  public void proposition() {
+    propositions.increment();
+  }
+
+  public void clause(int size) {
+    clauses.increment();
+    literals.add(size);
+  }
+
+  public void terms(int count) {
+    terms.reset();
+    terms.add(count);
+  }
+
+  public void solver(Map<String, Number> statistics) {
+    solver.putAll(statistics);
+  }
+
+  // The phase started last, which is the one still running when a deadline fires.
+  public Phase phase() {
+    return phase;
+  }
+
+  public long nanos(Phase phase) {
+    return nanos.get(phase.ordinal());
+  }
+
+  public long bytes(Phase phase) {
+    return bytes.get(phase.ordinal());
+  }
+
+  public long propositions() {
+    return propositions.sum();
+  }
+
+  public long clauses() {
+    return clauses.sum();
+  }
+
+  public long literals() {
+    return literals.sum();
+  }
+
+  public long terms() {
+    return terms.sum();
+  }
+
+  public Map<String, Number> toMap() {
+    var map = new LinkedHashMap<String, Number>();
+    for (var phase : Phase.values()) {
+      var name = phase.name().toLowerCase();
+      map.put(name + ".nanos", nanos(phase));
+      map.put(name + ".bytes", bytes(phase));
+    }
+    map.put("propositions", propositions());
+    map.put("clauses", clauses());
+    map.put("literals", literals());
+    map.put("terms", terms());
+    for (var statistic : solver.entrySet()) {
+      map.put("solver." + statistic.getKey(), statistic.getValue());
+    }
+    return map;
+  }
+
+  public String toJson() {
+    return toMap().entrySet().stream()
+        .map(entry -> "\"" + entry.getKey() + "\": " + entry.getValue())
+        .collect(Collectors.joining(", ", "{", "}"));
+  }
+
+  private long allocatedBytes() {
+    if (!threads.isThreadAllocatedMemoryEnabled()) {
+      return 0;
+    }
+    var bytes = threads.getCurrentThreadAllocatedBytes();
+    for (var factory : workers) {
+      bytes += factory.allocatedBytes();
+    }
+    return bytes;
+  }
+}
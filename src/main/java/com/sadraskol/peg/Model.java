@@ -0,0 +1,158 @@
+package com.sadraskol.peg;
+
+import com.sadraskol.peg.engine.BitMatrix;
+import com.sadraskol.peg.engine.Operator;
+import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Set;
+import com.sadraskol.peg.engine.Terms;
+import com.sadraskol.peg.engine.Value;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Satisfying assignment of a session, decoded on demand. Sets are the ones bound by the facts,
+// and a relation is read the first time it is asked for from the solver's assignment of the
+// terms naming its pairs, without evaluating propositions again. Relations come as Set.Relation
+// rather than the Set.Literal of tuples they used to be, which literal() still gives. Pairs that
+// no clause mentions are unconstrained and left out of their relation, where decoding used to
+// fail on them. Decoding is timed in the Decode phase of the session's metrics whenever it happens.
+public final class Model extends AbstractMap<String, Set> {
+  private final Map<String, Value> bindings;
+  private final Terms terms;
+  private final int size;
+  private final BitSet assignment;
+  private final Map<String, Set> decoded;
+  private final Metrics metrics;
+  private Map<String, List<Integer>> pairs;
+
+  Model(Map<String, Value> bindings, Terms terms, int[] model, Metrics metrics) {
+    this.bindings = Map.copyOf(bindings);
+    this.terms = terms;
+    this.size = terms.size();
+    this.assignment = new BitSet(size + 1);
+    for (var literal : model) {
+      if (literal > 0) {
+        assignment.set(literal);
+      }
+    }
+    this.decoded = new HashMap<>();
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Set get(Object name) {
+    if (!(name instanceof String key) || !bindings.containsKey(key)) {
+      return null;
+    }
+    return decoded.computeIfAbsent(key, this::decode);
+  }
+
+  @Override
+  public boolean containsKey(Object name) {
+    return bindings.containsKey(name);
+  }
+
+  @Override
+  public java.util.Set<String> keySet() {
+    return bindings.keySet();
+  }
+
+  // Decodes every set and relation.
+  @Override
+  public java.util.Set<Entry<String, Set>> entrySet() {
+    return bindings.keySet().stream()
+        .map(name -> Map.entry(name, get(name)))
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  public Set.Relation relation(String name) {
+    if (!(get(name) instanceof Set.Relation relation)) {
+      throw new IllegalStateException("Expected a relation named: " + name);
+    }
+    return relation;
+  }
+
+  // Any set as a literal, with relations as their tuples row by row.
+  public Set.Literal literal(String name) {
+    return switch (get(name)) {
+      case Set.Literal literal -> literal;
+      case Set.Relation relation -> relation.toLiteral();
+      case null -> throw new IllegalStateException("Expected a set named: " + name);
+      case Set set -> throw new IllegalStateException("Expected a decoded set, got: " + set);
+    };
+  }
+
+  boolean holds(int literal) {
+    return literal > 0 ? assignment.get(literal) : !assignment.get(-literal);
+  }
+
+  // Clause that only models assigning some pair of some relation differently satisfy.
+  int[] blockingClause() {
+    return pairs().values().stream()
+        .flatMap(List::stream)
+        .mapToInt(id -> assignment.get(id) ? -id : id)
+        .toArray();
+  }
+
+  private Set decode(String name) {
+    var value = bindings.get(name);
+    var mark = metrics.start(Metrics.Phase.Decode);
+    try {
+      return switch (value) {
+        case Value.Set(Set.Literal literal) -> literal;
+        case Value.Set(Set.Product product) -> decode(name, product);
+        default -> throw new IllegalStateException("Expected a final value, but got: " + value);
+      };
+    } finally {
+      metrics.stop(mark);
+    }
+  }
+
+  private Set.Relation decode(String name, Set.Product product) {
+    var left = elements(product.leftSet());
+    var right = elements(product.rightSet());
+    var cells = new BitSet();
+    for (var id : pairs().getOrDefault(name, List.of())) {
+      if (!assignment.get(id)) {
+        continue;
+      }
+      var pair = ((Value.Tuple) ((Proposition.Binary) terms.get(id)).left()).values();
+      var row = left.indexOf(pair.getFirst());
+      var column = right.indexOf(pair.getLast());
+      if (row < 0 || column < 0) {
+        throw new IllegalStateException("Pair is not in the product of its sets: " + pair);
+      }
+      cells.set(row * right.size() + column);
+    }
+    return new Set.Relation(left, right, BitMatrix.of(left.size(), right.size(), cells));
+  }
+
+  // Terms naming a pair of a relation, grouped by relation in one pass over the term table.
+  private Map<String, List<Integer>> pairs() {
+    if (pairs == null) {
+      pairs = new HashMap<>();
+      for (var id = 1; id <= size; id++) {
+        if (terms.get(id)
+                instanceof
+                Proposition.Binary(var op, Value.Tuple(var pair), Value.Set(Set.Named(var name)))
+            && op == Operator.In
+            && pair.size() == 2) {
+          pairs.computeIfAbsent(name, _ -> new ArrayList<>()).add(id);
+        }
+      }
+    }
+    return pairs;
+  }
+
+  private List<Value> elements(Value.Set set) {
+    var resolved = set.set() instanceof Set.Named(var name) ? bindings.get(name) : set;
+    if (!(resolved instanceof Value.Set(Set.Literal literal))) {
+      throw new IllegalStateException("Expected literal set with values, got: " + resolved);
+    }
+    return literal.values();
+  }
+}
@@ -0,0 +1,43 @@
+package com.sadraskol.peg;
+
+import com.sadraskol.peg.backend.SatBackend;
+import com.sadraskol.peg.backend.SatBackends;
+import com.sadraskol.peg.engine.CardinalityEncoding;
+import com.sadraskol.peg.engine.Encoding;
+import java.util.function.Supplier;
+
+public record Options(
+    Encoding encoding,
+    int parallelism,
+    CardinalityEncoding cardinality,
+    Supplier<SatBackend> backend,
+    SpecCache cache) {
+  public static Options defaults() {
+    return new Options(
+        Encoding.Distributive,
+        1,
+        CardinalityEncoding.PseudoBoolean,
+        SatBackends.sat4j(),
+        SpecCache.none());
+  }
+
+  public Options withEncoding(Encoding encoding) {
+    return new Options(encoding, parallelism, cardinality, backend, cache);
+  }
+
+  public Options withParallelism(int parallelism) {
+    return new Options(encoding, parallelism, cardinality, backend, cache);
+  }
+
+  public Options withCardinality(CardinalityEncoding cardinality) {
+    return new Options(encoding, parallelism, cardinality, backend, cache);
+  }
+
+  public Options withBackend(Supplier<SatBackend> backend) {
+    return new Options(encoding, parallelism, cardinality, backend, cache);
+  }
+
+  public Options withCache(SpecCache cache) {
+    return new Options(encoding, parallelism, cardinality, backend, cache);
+  }
+}
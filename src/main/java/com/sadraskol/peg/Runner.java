@@ -1,77 +1,197 @@
 package com.sadraskol.peg;
 
-import com.sadraskol.peg.backend.Evaluator;
+import com.sadraskol.peg.engine.Deadline;
 import com.sadraskol.peg.engine.Engine;
-import com.sadraskol.peg.engine.Proposition;
-import com.sadraskol.peg.engine.Set;
+import com.sadraskol.peg.engine.Objective;
+import com.sadraskol.peg.engine.Resolver;
+import com.sadraskol.peg.parser.Declaration;
 import com.sadraskol.peg.parser.Parser;
 import com.sadraskol.peg.scanner.Scanner;
+import com.sadraskol.peg.scanner.Token;
+import com.sadraskol.peg.scanner.TokenType;
 import java.util.*;
-import org.sat4j.core.VecInt;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.TimeoutException;
 
-public record Runner(String source) {
+public record Runner(String source, Options options) {
+  public Runner(String source) {
+    this(source, Options.defaults());
+  }
 
-  public Map<String, Set> run() throws ContradictionException, TimeoutException {
-    var scanner = new Scanner(source);
-    var parser = new Parser(scanner.scan());
-    var engine = new Engine(parser.parse());
-    var evaluator = new Evaluator();
+  public Model run() throws ContradictionException, TimeoutException {
+    return run(new Metrics());
+  }
 
-    // evaluate and cnf
-    var specs = new ArrayList<Proposition>();
-    for (var proposition : engine.propositions()) {
-      var res = evaluator.evaluate(proposition);
-      specs.addAll(res.conjunctiveNormalForm().splitConjonctiveNormalForm().toList());
+  public Model run(Metrics metrics) throws ContradictionException, TimeoutException {
+    return run(metrics, Deadline.none());
+  }
+
+  // Specs with objectives get an optimal model, and specs without models an Unsatisfiable naming
+  // the constraints in conflict. Grounding, normal forms and solving stop once the deadline fires,
+  // with a DeadlineExceeded reporting how far they got and the best model found, if any.
+  public Model run(Metrics metrics, Deadline deadline)
+      throws ContradictionException, TimeoutException {
+    // Constraints that contradict each other as they are loaded, such as one grounding to false,
+    // make the session fail before any search.
+    Session session;
+    try {
+      session = session(metrics, deadline);
+    } catch (ContradictionException e) {
+      throw unsatisfiable(metrics, deadline);
+    }
+    try (session) {
+      var model = session.optimizes() ? session.optimize() : session.solve();
+      if (model.isEmpty()) {
+        throw unsatisfiable(metrics, deadline);
+      }
+      return model.get();
     }
+  }
 
-    // list terms
-    var termSet = new LinkedHashSet<Proposition>();
-    for (var phrase : specs) {
-      termSet.addAll(phrase.terms());
+  public List<Model> models(int limit) throws ContradictionException, TimeoutException {
+    try (var session = session()) {
+      return session.models(limit);
     }
-    var terms = termSet.stream().toList();
+  }
 
-    // Run Sat
-    var sat = satTranslate(specs, terms);
-    int[] satResult = executeSat(terms.size(), sat);
+  public Session session() throws ContradictionException, TimeoutException {
+    return session(new Metrics());
+  }
 
-    // Spit the model
-    for (var term : satResult) {
-      var proposition = terms.get(Math.abs(term) - 1);
-      if (term < 0) {
-        proposition = new Proposition.Not(proposition);
-      }
-      evaluator.evaluate(proposition, true);
-    }
-    return evaluator.reify();
+  public Session session(Metrics metrics) throws ContradictionException, TimeoutException {
+    return session(metrics, Deadline.none());
   }
 
-  private static int[] executeSat(int terms, List<int[]> sat)
-      throws TimeoutException, ContradictionException {
-    var minisat = org.sat4j.minisat.SolverFactory.newDefault();
+  public Session session(Metrics metrics, Deadline deadline)
+      throws ContradictionException, TimeoutException {
+    var mark = metrics.start(Metrics.Phase.Scan);
+    var tokens = new Scanner(source).scan();
+    metrics.stop(mark);
 
-    minisat.newVar(terms);
-    for (var a : sat) {
-      minisat.addClause(new VecInt(a));
-    }
+    var facts = new ArrayList<Token>();
+    var schema = new ArrayList<Token>();
+    split(tokens, facts, schema);
+    var key = SpecCache.key(schema);
+    var cached = options.cache().get(key);
+
+    // Only the facts are parsed and evaluated when the rest of the spec is cached.
+    mark = metrics.start(Metrics.Phase.Parse);
+    var declarations = new Parser(cached.isPresent() ? facts : tokens).parse();
+    metrics.stop(mark);
 
-    if (minisat.isSatisfiable()) {
-      return minisat.model();
-    } else {
-      throw new IllegalStateException("The model is not satisfiable");
+    mark = metrics.start(Metrics.Phase.Engine);
+    var compiled = cached.orElseGet(() -> compile(declarations, schema.size()));
+    if (cached.isEmpty()) {
+      options.cache().put(key, compiled);
+    }
+    var resolver = new Resolver();
+    var propositions = new ArrayList<>(compiled.bindings());
+    for (var declaration : declarations) {
+      if (declaration instanceof Declaration.Facts) {
+        for (var fact : compiled.engine().propositions(List.of(declaration))) {
+          propositions.add(resolver.resolve(fact));
+        }
+      }
     }
+    propositions.addAll(compiled.constraints());
+    metrics.stop(mark);
+
+    return new Session(
+        compiled.engine(), propositions, compiled.objectives(), options, metrics, deadline);
   }
 
-  private static List<int[]> satTranslate(List<Proposition> specs, List<Proposition> terms) {
-    var vecs = new ArrayList<int[]>();
-    for (var proposition : specs) {
-      var substitute = proposition.substituteTerms(terms);
-      if (!substitute.isEmpty()) {
-        vecs.add(proposition.substituteTerms(terms).stream().mapToInt(Integer::intValue).toArray());
+  // Everything but the facts, which only read the types of the records. Constraints read the sets
+  // the facts bind, so they come after them whatever their place in the source.
+  private static SpecCache.Compiled compile(List<Declaration> declarations, int tokens) {
+    var engine = new Engine(declarations);
+    var resolver = new Resolver();
+    var propositions =
+        engine
+            .propositions(
+                declarations.stream()
+                    .filter(declaration -> !(declaration instanceof Declaration.Facts))
+                    .toList())
+            .stream()
+            .map(resolver::resolve)
+            .toList();
+    var objectives =
+        engine.objectives().stream()
+            .map(
+                objective ->
+                    new Objective(
+                        objective.kind(),
+                        resolver.resolve(objective.proposition()),
+                        objective.weight()))
+            .toList();
+    return new SpecCache.Compiled(
+        engine,
+        propositions.stream().filter(Session::binds).toList(),
+        propositions.stream().filter(proposition -> !Session.binds(proposition)).toList(),
+        objectives,
+        tokens);
+  }
+
+  // The tokens of facts blocks, braces of their set literals included, apart from the others.
+  // The facts keyword stays in both so the place of the facts is part of the key, and both end
+  // with the end of file.
+  private static void split(List<Token> tokens, List<Token> facts, List<Token> schema) {
+    var depth = 0;
+    var inFacts = false;
+    for (var token : tokens) {
+      switch (token.type()) {
+        case TokenType.Eof -> {
+          facts.add(token);
+          schema.add(token);
+        }
+        case TokenType.Facts -> {
+          inFacts = true;
+          facts.add(token);
+          schema.add(token);
+        }
+        default -> {
+          if (!inFacts) {
+            schema.add(token);
+            continue;
+          }
+          facts.add(token);
+          if (token.type() == TokenType.LeftBrace) {
+            depth++;
+          } else if (token.type() == TokenType.RightBrace && --depth == 0) {
+            inFacts = false;
+          }
+        }
       }
     }
-    return vecs;
+  }
+
+  // Compiles the spec again with its requirements apart from the facts, so the session can blame
+  // a minimal set of them, and locates them in the source.
+  private Unsatisfiable unsatisfiable(Metrics metrics, Deadline deadline)
+      throws ContradictionException, TimeoutException {
+    var parser = new Parser(new Scanner(source).scan());
+    var engine = new Engine(parser.parse());
+    var resolver = new Resolver();
+    var bindings =
+        engine.propositions().stream().filter(Session::binds).map(resolver::resolve).toList();
+    var requirements = engine.requirements();
+    Optional<List<Integer>> core;
+    try (var session = new Session(engine, bindings, List.of(), options, metrics, deadline)) {
+      core =
+          session.core(
+              requirements.stream()
+                  .map(requirement -> resolver.resolve(requirement.proposition()))
+                  .toList());
+    } catch (ContradictionException e) {
+      // The facts alone cannot hold, no requirement is to blame.
+      return new Unsatisfiable(List.of());
+    }
+    return new Unsatisfiable(
+        core.orElse(List.of()).stream()
+            .map(requirements::get)
+            .map(
+                requirement ->
+                    new Unsatisfiable.Conflict(
+                        requirement.description(), parser.line(requirement.declaration())))
+            .toList());
   }
 }
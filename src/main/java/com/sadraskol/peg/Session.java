@@ -0,0 +1,560 @@
+package com.sadraskol.peg;
+
+import com.sadraskol.peg.backend.Evaluator;
+import com.sadraskol.peg.backend.SatBackend;
+import com.sadraskol.peg.backend.Translator;
+import com.sadraskol.peg.engine.Cardinalities;
+import com.sadraskol.peg.engine.CardinalityEncoding;
+import com.sadraskol.peg.engine.Deadline;
+import com.sadraskol.peg.engine.Engine;
+import com.sadraskol.peg.engine.Objective;
+import com.sadraskol.peg.engine.Operator;
+import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Resolver;
+import com.sadraskol.peg.engine.Terms;
+import com.sadraskol.peg.engine.Tseitin;
+import com.sadraskol.peg.engine.Value;
+import com.sadraskol.peg.parser.Parser;
+import com.sadraskol.peg.scanner.Scanner;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class Session implements AutoCloseable {
+  // A unit of an objective holds while its literal is true, and costs its weight otherwise.
+  private record Soft(Proposition.Auxiliary auxiliary, int literal, int weight) {}
+
+  private final Options options;
+  private final Metrics metrics;
+  private final Engine engine;
+  private final Deadline deadline;
+  // Shared by grounding and large expansions so they stay within options.parallelism().
+  private final ForkJoinPool pool;
+  private final Evaluator evaluator;
+  private final Tseitin tseitin;
+  private final Terms terms;
+  private final SatBackend solver;
+  private final Runnable interruption;
+  private final Translator translator;
+  private final List<Soft> softs;
+  // Weight of the units that grounded to false, which every model pays.
+  private long fixedCost;
+
+  Session(
+      Engine engine,
+      List<Proposition> propositions,
+      List<Objective> objectives,
+      Options options,
+      Metrics metrics,
+      Deadline deadline)
+      throws ContradictionException, TimeoutException {
+    this.options = options;
+    this.metrics = metrics;
+    this.engine = engine;
+    this.deadline = deadline;
+    this.pool =
+        options.parallelism() > 1
+            ? new ForkJoinPool(options.parallelism(), metrics.workers(), null, false)
+            : null;
+    this.evaluator = new Evaluator(pool, deadline);
+    this.tseitin = new Tseitin(deadline);
+    this.terms = new Terms();
+    this.solver = options.backend().get();
+    this.translator = new Translator(terms, solver);
+    this.softs = new ArrayList<>();
+    this.fixedCost = 0;
+    this.interruption = solver::interrupt;
+    deadline.onCancel(interruption);
+
+    // A spec that contradicts itself or runs out of time fails here, and the caller never gets a
+    // session to close, so the pool and the backend threads are released before rethrowing.
+    var loaded = false;
+    try {
+      if (options.parallelism() > 1) {
+        addInParallel(propositions);
+      } else {
+        for (var proposition : propositions) {
+          addGrounded(ground(evaluator, proposition));
+        }
+      }
+      for (var objective : objectives) {
+        addObjective(objective);
+      }
+      loaded = true;
+    } catch (Deadline.Exceeded e) {
+      throw new DeadlineExceeded(metrics, e);
+    } finally {
+      if (!loaded) {
+        close();
+      }
+    }
+  }
+
+  public Metrics metrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    deadline.remove(interruption);
+    solver.close();
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  public List<Proposition> propositions(String source) {
+    var scanner = new Scanner(source);
+    var parser = new Parser(scanner.scan());
+    var resolver = new Resolver();
+    return engine.propositions(parser.parse()).stream().map(resolver::resolve).toList();
+  }
+
+  public void add(Proposition proposition) throws ContradictionException, TimeoutException {
+    try {
+      addGrounded(ground(evaluator, proposition));
+    } catch (Deadline.Exceeded e) {
+      throw new DeadlineExceeded(metrics, e);
+    }
+  }
+
+  private void addGrounded(Proposition grounded) throws ContradictionException {
+    var clauses = clauses(grounded).iterator();
+    var mark = metrics.start(Metrics.Phase.Translate);
+    while (clauses.hasNext()) {
+      var size = translator.add(clauses.next());
+      if (size > 0) {
+        metrics.clause(size);
+      }
+    }
+    metrics.stop(mark);
+    metrics.terms(terms.size());
+  }
+
+  // Each unit of an objective is only required while its literal holds, and the optimizer looks
+  // for models where the literals it leaves false weigh as little as possible.
+  private void addObjective(Objective objective) throws ContradictionException {
+    for (var unit : objective.units(ground(evaluator, objective.proposition()))) {
+      if (unit instanceof Proposition.True) {
+        continue;
+      }
+      if (unit instanceof Proposition.False) {
+        fixedCost += objective.weight();
+        continue;
+      }
+      var auxiliary = tseitin.auxiliary();
+      var literal = translator.literals(auxiliary)[0];
+      addGuarded(clauses(unit).toList(), literal);
+      softs.add(new Soft(auxiliary, literal, objective.weight()));
+    }
+  }
+
+  // Clauses that only hold while the selector does. Native cardinality constraints cannot be
+  // guarded, so they are encoded as clauses first.
+  private void addGuarded(List<Proposition> clauses, int selector) throws ContradictionException {
+    for (var clause : clauses) {
+      switch (clause) {
+        case Proposition.False _ -> solver.addClause(new int[] {-selector});
+        case Proposition.Cardinality cardinality ->
+            addGuarded(Cardinalities.sequentialCounter(cardinality, tseitin::auxiliary), selector);
+        default -> {
+          var guarded = translator.literals(clause);
+          if (guarded.length > 0) {
+            guarded = Arrays.copyOf(guarded, guarded.length + 1);
+            guarded[guarded.length - 1] = -selector;
+            solver.addClause(guarded);
+          }
+        }
+      }
+    }
+  }
+
+  public Optional<Model> solve() throws TimeoutException {
+    return solve(List.of());
+  }
+
+  public Optional<Model> solve(List<Proposition> assumptions) throws TimeoutException {
+    var literals = new ArrayList<Integer>();
+    var selectors = new ArrayList<Integer>();
+    try {
+      for (var assumption : assumptions) {
+        var clauses = clauses(ground(evaluator, assumption)).toList();
+        if (clauses.stream().anyMatch(clause -> clause instanceof Proposition.False)) {
+          return Optional.empty();
+        }
+        var unit = clauses.size() == 1 ? translator.literals(clauses.getFirst()) : new int[0];
+        if (unit.length == 1) {
+          literals.add(unit[0]);
+        } else if (!clauses.isEmpty()) {
+          var selector = translator.literals(tseitin.auxiliary())[0];
+          selectors.add(selector);
+          addGuarded(clauses, selector);
+          literals.add(selector);
+        }
+      }
+
+      return search(literals.stream().mapToInt(Integer::intValue).toArray());
+    } catch (ContradictionException e) {
+      return Optional.empty();
+    } catch (Deadline.Exceeded e) {
+      throw new DeadlineExceeded(metrics, e);
+    } finally {
+      retire(selectors);
+    }
+  }
+
+  // Indices of a minimal subset of the requirements that conflicts with the session, or nothing
+  // when they are satisfiable together. Each requirement is guarded by a selector: the ones the
+  // solver does not blame are dropped, then each remaining one is dropped when the others still
+  // conflict without it. Leaving out any requirement of the result makes the others satisfiable.
+  public Optional<List<Integer>> core(List<Proposition> requirements) throws TimeoutException {
+    var selectors = new ArrayList<Integer>();
+    try {
+      for (var requirement : requirements) {
+        var selector = translator.literals(tseitin.auxiliary())[0];
+        selectors.add(selector);
+        addGuarded(clauses(ground(evaluator, requirement)).toList(), selector);
+      }
+      var candidates = new ArrayList<Integer>();
+      for (var i = 0; i < requirements.size(); i++) {
+        candidates.add(i);
+      }
+      var core = conflict(candidates, selectors);
+      if (core.isEmpty()) {
+        return Optional.empty();
+      }
+      // A requirement kept once is needed by every smaller conflict, so the ones before the
+      // cursor stay in place.
+      var minimal = core.get();
+      var cursor = 0;
+      while (cursor < minimal.size()) {
+        var without = new ArrayList<>(minimal);
+        without.remove(cursor);
+        var smaller = conflict(without, selectors);
+        if (smaller.isPresent()) {
+          minimal = smaller.get();
+        } else {
+          cursor++;
+        }
+      }
+      return Optional.of(minimal);
+    } catch (ContradictionException e) {
+      return Optional.of(List.of());
+    } catch (Deadline.Exceeded e) {
+      throw new DeadlineExceeded(metrics, e);
+    } finally {
+      retire(selectors);
+    }
+  }
+
+  // The candidates the solver blames when they are unsatisfiable together.
+  private Optional<List<Integer>> conflict(List<Integer> candidates, List<Integer> selectors)
+      throws TimeoutException {
+    var assumptions = candidates.stream().mapToInt(selectors::get).toArray();
+    if (search(assumptions).isPresent()) {
+      return Optional.empty();
+    }
+    var blamed = new HashSet<Integer>();
+    for (var literal : solver.core(assumptions)) {
+      blamed.add(literal);
+    }
+    return Optional.of(
+        candidates.stream()
+            .filter(candidate -> blamed.contains(selectors.get(candidate)))
+            .toList());
+  }
+
+  public boolean optimizes() {
+    return !softs.isEmpty() || fixedCost > 0;
+  }
+
+  public Optional<Model> optimize() throws TimeoutException {
+    return optimize((_, _) -> {});
+  }
+
+  // Linear search from above: every model found is reported with its cost as soon as it is
+  // found, then a bound guarded by a fresh selector asks for a strictly cheaper one until there
+  // is none. When the deadline fires, the DeadlineExceeded carries the best model so far.
+  public Optional<Model> optimize(ObjLongConsumer<Model> improvements) throws TimeoutException {
+    var selectors = new ArrayList<Integer>();
+    var assumptions = new int[0];
+    Optional<Model> best = Optional.empty();
+    try {
+      while (true) {
+        var model = search(assumptions);
+        if (model.isEmpty()) {
+          return best;
+        }
+        best = model;
+        var cost = cost(model.get());
+        improvements.accept(model.get(), cost);
+        if (cost == fixedCost) {
+          return best;
+        }
+        var selector = translator.literals(tseitin.auxiliary())[0];
+        selectors.add(selector);
+        bound(cost - 1, selector);
+        assumptions = new int[] {selector};
+      }
+    } catch (ContradictionException e) {
+      return best;
+    } catch (DeadlineExceeded e) {
+      if (best.isPresent()) {
+        throw new DeadlineExceeded(e, best.get());
+      }
+      throw e;
+    } finally {
+      retire(selectors);
+    }
+  }
+
+  private long cost(Model model) {
+    return fixedCost
+        + softs.stream().filter(soft -> !model.holds(soft.literal())).mapToLong(Soft::weight).sum();
+  }
+
+  // While the selector holds, models cost at most cost: the soft literals left false weigh at most
+  // max, what remains once the fixed cost is paid. Pseudo-boolean backends take
+  // sum(w.-s) + (total - max).selector <= total as is, others get the counter over each literal
+  // repeated by its weight.
+  private void bound(long cost, int selector) throws ContradictionException {
+    var max = cost - fixedCost;
+    if (solver.pseudoBoolean()) {
+      var total = softs.stream().mapToInt(Soft::weight).sum();
+      var literals = new int[softs.size() + 1];
+      var weights = new int[softs.size() + 1];
+      for (var i = 0; i < softs.size(); i++) {
+        literals[i] = -softs.get(i).literal();
+        weights[i] = softs.get(i).weight();
+      }
+      literals[softs.size()] = selector;
+      weights[softs.size()] = Math.toIntExact(total - max);
+      solver.addAtMost(literals, weights, total);
+      return;
+    }
+    var negations = new ArrayList<Proposition>();
+    for (var soft : softs) {
+      for (var i = 0; i < soft.weight(); i++) {
+        negations.add(new Proposition.Not(soft.auxiliary()));
+      }
+    }
+    addGuarded(List.of(new Proposition.Cardinality(negations, 0, Math.toIntExact(max))), selector);
+  }
+
+  // Successive models that differ on at least one pair of a relation, the only variables callers
+  // see, without grounding the spec again. Each model is blocked by a clause guarded by a selector
+  // that is only assumed while enumerating, and retired once the stream is exhausted or closed.
+  public Stream<Model> models() {
+    var selector = translator.literals(tseitin.auxiliary())[0];
+    var models =
+        new Iterator<Model>() {
+          private Optional<Model> next = null;
+
+          @Override
+          public boolean hasNext() {
+            if (next == null) {
+              try {
+                next = nextModel(selector);
+              } catch (TimeoutException e) {
+                throw new IllegalStateException("Could not enumerate models", e);
+              }
+              if (next.isEmpty()) {
+                retire(List.of(selector));
+              }
+            }
+            return next.isPresent();
+          }
+
+          @Override
+          public Model next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            var model = next.get();
+            next = null;
+            return model;
+          }
+        };
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(models, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(() -> retire(List.of(selector)));
+  }
+
+  // At most limit distinct models, for instance to show a few alternatives.
+  public List<Model> models(int limit) throws TimeoutException {
+    var selector = translator.literals(tseitin.auxiliary())[0];
+    var models = new ArrayList<Model>();
+    try {
+      while (models.size() < limit) {
+        var model = nextModel(selector);
+        if (model.isEmpty()) {
+          break;
+        }
+        models.add(model.get());
+      }
+    } finally {
+      retire(List.of(selector));
+    }
+    return models;
+  }
+
+  private Optional<Model> nextModel(int selector) throws TimeoutException {
+    var model = search(new int[] {selector});
+    if (model.isPresent()) {
+      var blocking = model.get().blockingClause();
+      blocking = Arrays.copyOf(blocking, blocking.length + 1);
+      blocking[blocking.length - 1] = -selector;
+      try {
+        solver.addClause(blocking);
+      } catch (ContradictionException e) {
+        throw new IllegalStateException("Could not block model", e);
+      }
+    }
+    return model;
+  }
+
+  private Optional<Model> search(int[] assumptions) throws TimeoutException {
+    try {
+      deadline.check();
+      if (deadline.bounded()) {
+        solver.timeout(deadline.remainingMillis());
+      }
+    } catch (Deadline.Exceeded e) {
+      throw new DeadlineExceeded(metrics, e);
+    }
+    var mark = metrics.start(Metrics.Phase.Solve);
+    boolean satisfiable;
+    try {
+      satisfiable = solver.isSatisfiable(assumptions);
+    } catch (TimeoutException e) {
+      if (deadline.bounded() || deadline.expired()) {
+        throw new DeadlineExceeded(metrics, e);
+      }
+      throw e;
+    } finally {
+      metrics.stop(mark);
+      metrics.solver(solver.statistics());
+    }
+    if (!satisfiable) {
+      return Optional.empty();
+    }
+
+    mark = metrics.start(Metrics.Phase.Decode);
+    var model = new Model(evaluator.current(), terms, solver.model(), metrics);
+    metrics.stop(mark);
+    return Optional.of(model);
+  }
+
+  // Records and facts bind sets, which every other proposition only reads.
+  static boolean binds(Proposition proposition) {
+    return proposition instanceof Proposition.Binary(var op, Value.Set _, var _)
+        && op == Operator.Equal;
+  }
+
+  // Bindings from records and facts are evaluated in order, then every other proposition only
+  // reads them: constraints are grounded on forks of the evaluator and translated in their
+  // original order, so the clause database does not depend on scheduling.
+  private void addInParallel(List<Proposition> propositions) throws ContradictionException {
+    var constraints = new ArrayList<Proposition>();
+    for (var proposition : propositions) {
+      if (binds(proposition)) {
+        addGrounded(ground(evaluator, proposition));
+      } else {
+        constraints.add(proposition);
+      }
+    }
+
+    try {
+      // Workers overlap, so the phase is timed once around the join rather than per worker.
+      List<Proposition> grounded;
+      var mark = metrics.start(Metrics.Phase.Ground);
+      try {
+        grounded =
+            pool.submit(
+                    () ->
+                        constraints.parallelStream()
+                            .map(constraint -> evaluate(evaluator.fork(), constraint))
+                            .toList())
+                .get();
+      } finally {
+        metrics.stop(mark);
+      }
+      for (var proposition : grounded) {
+        addGrounded(proposition);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while grounding constraints", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Could not ground constraints", e.getCause());
+    }
+  }
+
+  private Proposition ground(Evaluator evaluator, Proposition proposition) {
+    var mark = metrics.start(Metrics.Phase.Ground);
+    try {
+      return evaluate(evaluator, proposition);
+    } finally {
+      metrics.stop(mark);
+    }
+  }
+
+  private Proposition evaluate(Evaluator evaluator, Proposition proposition) {
+    metrics.proposition();
+    return evaluator.evaluate(proposition);
+  }
+
+  private Stream<Proposition> clauses(Proposition grounded) {
+    var mark = metrics.start(Metrics.Phase.Cnf);
+    Proposition cnf;
+    try {
+      cnf =
+          switch (options.encoding()) {
+            case Distributive -> evaluator.propositions().conjunctiveNormalForm(grounded);
+            case Tseitin -> tseitin.conjunctiveNormalForm(grounded);
+          };
+    } finally {
+      metrics.stop(mark);
+    }
+    var clauses = cnf.splitConjonctiveNormalForm();
+    if (options.cardinality() == CardinalityEncoding.PseudoBoolean && solver.cardinalities()) {
+      return clauses;
+    }
+    return clauses.flatMap(
+        clause ->
+            clause instanceof Proposition.Cardinality cardinality
+                ? encode(cardinality).stream()
+                : Stream.of(clause));
+  }
+
+  // Backends without native cardinality constraints get the sequential counter by default.
+  private List<Proposition> encode(Proposition.Cardinality cardinality) {
+    return switch (options.cardinality()) {
+      case PseudoBoolean ->
+          solver.cardinalities()
+              ? List.of(cardinality)
+              : Cardinalities.sequentialCounter(cardinality, tseitin::auxiliary);
+      case SequentialCounter -> Cardinalities.sequentialCounter(cardinality, tseitin::auxiliary);
+      case Commander -> Cardinalities.commander(cardinality, tseitin::auxiliary);
+    };
+  }
+
+  private void retire(List<Integer> selectors) {
+    for (var selector : selectors) {
+      try {
+        solver.addClause(new int[] {-selector});
+      } catch (ContradictionException e) {
+        throw new IllegalStateException("Could not retire assumption selector: " + selector, e);
+      }
+    }
+  }
+}
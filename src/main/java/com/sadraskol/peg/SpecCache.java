@@ -0,0 +1,102 @@
+package com.sadraskol.peg;
+
+import com.sadraskol.peg.engine.Engine;
+import com.sadraskol.peg.engine.Objective;
+import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.scanner.Token;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+// Specs compiled up to their facts, keyed by a hash of the tokens outside their facts: running the
+// same records and constraints with other facts only parses and evaluates the facts again. The
+// least recently used specs are evicted once there are more than maxEntries of them, or once
+// their tokens, which stand for the memory their propositions hold, add up to more than
+// maxTokens.
+public class SpecCache {
+  // Propositions are resolved, bindings of records and facts before constraints.
+  record Compiled(
+      Engine engine,
+      List<Proposition> bindings,
+      List<Proposition> constraints,
+      List<Objective> objectives,
+      int tokens) {}
+
+  private final int maxEntries;
+  private final long maxTokens;
+  private final LinkedHashMap<String, Compiled> entries;
+  private long tokens;
+  private long hits;
+  private long misses;
+
+  public SpecCache(int maxEntries, long maxTokens) {
+    this.maxEntries = maxEntries;
+    this.maxTokens = maxTokens;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.tokens = 0;
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  // Keeps nothing, so every run compiles its spec.
+  public static SpecCache none() {
+    return new SpecCache(0, 0);
+  }
+
+  static String key(List<Token> schema) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      for (var token : schema) {
+        digest.update(token.type().name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(token.content().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  synchronized Optional<Compiled> get(String key) {
+    var compiled = entries.get(key);
+    if (compiled == null) {
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    return Optional.of(compiled);
+  }
+
+  synchronized void put(String key, Compiled compiled) {
+    if (maxEntries == 0 || compiled.tokens() > maxTokens) {
+      return;
+    }
+    var previous = entries.put(key, compiled);
+    if (previous != null) {
+      tokens -= previous.tokens();
+    }
+    tokens += compiled.tokens();
+    var eldest = entries.entrySet().iterator();
+    while (entries.size() > maxEntries || tokens > maxTokens) {
+      tokens -= eldest.next().getValue().tokens();
+      eldest.remove();
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+}
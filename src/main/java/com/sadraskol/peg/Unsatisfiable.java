@@ -0,0 +1,33 @@
+package com.sadraskol.peg;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Thrown when a spec has no model, with a minimal set of its requirements that conflict: leaving
+// out any of them makes the others satisfiable. No conflict means the facts alone conflict.
+public class Unsatisfiable extends IllegalStateException {
+  public record Conflict(String description, int line) {
+    public String toString() {
+      return description + " at line " + line;
+    }
+  }
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<Conflict> conflicts;
+
+  public Unsatisfiable(List<Conflict> conflicts) {
+    super(
+        conflicts.isEmpty()
+            ? "The model is not satisfiable"
+            : conflicts.stream()
+                .map(Conflict::toString)
+                .collect(
+                    Collectors.joining(", ", "The model is not satisfiable, conflicting: ", "")));
+    this.conflicts = List.copyOf(conflicts);
+  }
+
+  public List<Conflict> conflicts() {
+    return conflicts;
+  }
+}
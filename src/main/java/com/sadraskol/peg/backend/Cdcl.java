@@ -0,0 +1,387 @@
+package com.sadraskol.peg.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+// Small conflict driven clause learning solver: two watched literals, first UIP learning, VSIDS
+// activities, phase saving and Luby restarts. Decisions scan the variables for the most active
+// one, which is cheap on the small specs it is meant for, where starting sat4j dominates.
+public class Cdcl implements SatBackend {
+  private static final int RESTART_UNIT = 100;
+  private static final double DECAY = 0.95;
+
+  private int variables;
+  private final List<int[]> clauses;
+  private final List<Integer> units;
+  private final List<List<Integer>> watches;
+  private byte[] values;
+  private boolean[] phases;
+  private int[] levels;
+  private int[] reasons;
+  private double[] activities;
+  private double increment;
+  private int[] trail;
+  private int assigned;
+  private int propagated;
+  private final List<Integer> limits;
+  private boolean inconsistent;
+  private volatile boolean interrupted;
+  private long timeout;
+  private int[] model;
+  private long decisions;
+  private long conflicts;
+  private long propagations;
+
+  public Cdcl() {
+    this.variables = 0;
+    this.clauses = new ArrayList<>();
+    this.units = new ArrayList<>();
+    this.watches = new ArrayList<>(List.of(new ArrayList<>(), new ArrayList<>()));
+    this.values = new byte[1];
+    this.phases = new boolean[1];
+    this.levels = new int[1];
+    this.reasons = new int[1];
+    this.activities = new double[1];
+    this.increment = 1;
+    this.trail = new int[0];
+    this.assigned = 0;
+    this.propagated = 0;
+    this.limits = new ArrayList<>();
+    this.inconsistent = false;
+    this.timeout = Long.MAX_VALUE;
+    this.model = new int[0];
+  }
+
+  @Override
+  public int variables() {
+    return variables;
+  }
+
+  @Override
+  public void newVariables(int count) {
+    if (count <= variables) {
+      return;
+    }
+    values = Arrays.copyOf(values, count + 1);
+    phases = Arrays.copyOf(phases, count + 1);
+    levels = Arrays.copyOf(levels, count + 1);
+    reasons = Arrays.copyOf(reasons, count + 1);
+    activities = Arrays.copyOf(activities, count + 1);
+    trail = Arrays.copyOf(trail, count);
+    while (watches.size() < 2 * (count + 1)) {
+      watches.add(new ArrayList<>());
+    }
+    variables = count;
+  }
+
+  @Override
+  public void addClause(int[] literals) throws ContradictionException {
+    var clause = Arrays.stream(literals).distinct().toArray();
+    for (var literal : clause) {
+      if (Arrays.stream(clause).anyMatch(other -> other == -literal)) {
+        return;
+      }
+      newVariables(Math.abs(literal));
+    }
+    switch (clause.length) {
+      case 0 -> {
+        inconsistent = true;
+        throw new ContradictionException("Cannot satisfy an empty clause");
+      }
+      case 1 -> units.add(clause[0]);
+      default -> attach(clause);
+    }
+  }
+
+  @Override
+  public boolean isSatisfiable(int[] assumptions) throws TimeoutException {
+    interrupted = false;
+    var start = System.nanoTime();
+    if (inconsistent) {
+      return false;
+    }
+    backtrack(0);
+    for (var i = assigned - 1; i >= 0; i--) {
+      unassign(trail[i]);
+    }
+    assigned = 0;
+    propagated = 0;
+    for (var unit : units) {
+      if (value(unit) < 0) {
+        inconsistent = true;
+        return false;
+      }
+      if (value(unit) == 0) {
+        assign(unit, -1);
+      }
+    }
+    for (var assumption : assumptions) {
+      newVariables(Math.abs(assumption));
+    }
+
+    var restarts = 0;
+    var budget = RESTART_UNIT * luby(restarts);
+    while (true) {
+      if (interrupted) {
+        backtrack(0);
+        throw new TimeoutException("Search was interrupted");
+      }
+      if (timeout != Long.MAX_VALUE && System.nanoTime() - start > timeout) {
+        backtrack(0);
+        throw new TimeoutException("Search timed out");
+      }
+      var conflict = propagate();
+      if (conflict >= 0) {
+        conflicts++;
+        if (limits.isEmpty()) {
+          inconsistent = true;
+          return false;
+        }
+        learn(conflict);
+        increment /= DECAY;
+        if (--budget <= 0) {
+          backtrack(0);
+          restarts++;
+          budget = RESTART_UNIT * luby(restarts);
+        }
+        continue;
+      }
+
+      if (limits.size() < assumptions.length) {
+        var assumption = assumptions[limits.size()];
+        if (value(assumption) < 0) {
+          return false;
+        }
+        limits.add(assigned);
+        if (value(assumption) == 0) {
+          assign(assumption, -1);
+        }
+        continue;
+      }
+
+      var decision = pick();
+      if (decision == 0) {
+        model = new int[variables];
+        for (var variable = 1; variable <= variables; variable++) {
+          model[variable - 1] = values[variable] > 0 ? variable : -variable;
+        }
+        return true;
+      }
+      decisions++;
+      limits.add(assigned);
+      assign(decision, -1);
+    }
+  }
+
+  @Override
+  public void interrupt() {
+    interrupted = true;
+  }
+
+  @Override
+  public void timeout(long millis) {
+    timeout = millis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : millis * 1_000_000;
+  }
+
+  @Override
+  public int[] model() {
+    return model;
+  }
+
+  @Override
+  public Map<String, Number> statistics() {
+    var statistics = new LinkedHashMap<String, Number>();
+    statistics.put("decisions", decisions);
+    statistics.put("conflicts", conflicts);
+    statistics.put("propagations", propagations);
+    statistics.put("clauses", clauses.size() + units.size());
+    return statistics;
+  }
+
+  private void attach(int[] clause) {
+    clauses.add(clause);
+    watches.get(index(clause[0])).add(clauses.size() - 1);
+    watches.get(index(clause[1])).add(clauses.size() - 1);
+  }
+
+  // Returns the index of a conflicting clause, or -1 once every assignment is propagated. The
+  // literal a clause implies is kept first, so its reason is read from position 0.
+  private int propagate() {
+    while (propagated < assigned) {
+      var falsified = -trail[propagated++];
+      propagations++;
+      var watching = watches.get(index(falsified));
+      var kept = 0;
+      for (var i = 0; i < watching.size(); i++) {
+        var index = watching.get(i);
+        var clause = clauses.get(index);
+        if (clause[0] == falsified) {
+          clause[0] = clause[1];
+          clause[1] = falsified;
+        }
+        if (value(clause[0]) > 0) {
+          watching.set(kept++, index);
+          continue;
+        }
+        var moved = false;
+        for (var k = 2; k < clause.length && !moved; k++) {
+          if (value(clause[k]) >= 0) {
+            clause[1] = clause[k];
+            clause[k] = falsified;
+            watches.get(index(clause[1])).add(index);
+            moved = true;
+          }
+        }
+        if (moved) {
+          continue;
+        }
+        watching.set(kept++, index);
+        if (value(clause[0]) < 0) {
+          for (var j = i + 1; j < watching.size(); j++) {
+            watching.set(kept++, watching.get(j));
+          }
+          watching.subList(kept, watching.size()).clear();
+          return index;
+        }
+        assign(clause[0], index);
+      }
+      watching.subList(kept, watching.size()).clear();
+    }
+    return -1;
+  }
+
+  // First UIP: resolves the conflict with the reasons of the literals of the current level until
+  // a single one is left, then jumps back to the second highest level of the learnt clause.
+  private void learn(int conflict) {
+    var seen = new boolean[variables + 1];
+    var learnt = new ArrayList<Integer>();
+    learnt.add(0);
+    var level = limits.size();
+    var pending = 0;
+    var literal = 0;
+    var position = assigned - 1;
+    var reason = conflict;
+    do {
+      var clause = clauses.get(reason);
+      for (var j = literal == 0 ? 0 : 1; j < clause.length; j++) {
+        var variable = Math.abs(clause[j]);
+        if (!seen[variable] && levels[variable] > 0) {
+          seen[variable] = true;
+          bump(variable);
+          if (levels[variable] >= level) {
+            pending++;
+          } else {
+            learnt.add(clause[j]);
+          }
+        }
+      }
+      while (!seen[Math.abs(trail[position])]) {
+        position--;
+      }
+      literal = trail[position--];
+      reason = reasons[Math.abs(literal)];
+      seen[Math.abs(literal)] = false;
+      pending--;
+    } while (pending > 0);
+    learnt.set(0, -literal);
+
+    var jump = 0;
+    for (var i = 1; i < learnt.size(); i++) {
+      if (levels[Math.abs(learnt.get(i))] > levels[Math.abs(learnt.get(1))]) {
+        learnt.set(i, learnt.set(1, learnt.get(i)));
+      }
+    }
+    if (learnt.size() > 1) {
+      jump = levels[Math.abs(learnt.get(1))];
+    }
+    backtrack(jump);
+    if (learnt.size() == 1) {
+      units.add(-literal);
+      assign(-literal, -1);
+    } else {
+      attach(learnt.stream().mapToInt(Integer::intValue).toArray());
+      assign(-literal, clauses.size() - 1);
+    }
+  }
+
+  private int pick() {
+    var best = 0;
+    for (var variable = 1; variable <= variables; variable++) {
+      if (values[variable] == 0 && (best == 0 || activities[variable] > activities[best])) {
+        best = variable;
+      }
+    }
+    if (best == 0) {
+      return 0;
+    }
+    return phases[best] ? best : -best;
+  }
+
+  private void bump(int variable) {
+    activities[variable] += increment;
+    if (activities[variable] > 1e100) {
+      for (var i = 1; i <= variables; i++) {
+        activities[i] *= 1e-100;
+      }
+      increment *= 1e-100;
+    }
+  }
+
+  private void assign(int literal, int reason) {
+    var variable = Math.abs(literal);
+    values[variable] = (byte) (literal > 0 ? 1 : -1);
+    levels[variable] = limits.size();
+    reasons[variable] = reason;
+    trail[assigned++] = literal;
+  }
+
+  private void unassign(int literal) {
+    var variable = Math.abs(literal);
+    values[variable] = 0;
+    reasons[variable] = -1;
+    phases[variable] = literal > 0;
+  }
+
+  private void backtrack(int level) {
+    if (limits.size() <= level) {
+      return;
+    }
+    var limit = limits.get(level);
+    for (var i = assigned - 1; i >= limit; i--) {
+      unassign(trail[i]);
+    }
+    assigned = limit;
+    propagated = Math.min(propagated, limit);
+    limits.subList(level, limits.size()).clear();
+  }
+
+  private int value(int literal) {
+    var value = values[Math.abs(literal)];
+    return literal > 0 ? value : -value;
+  }
+
+  private static int index(int literal) {
+    return 2 * Math.abs(literal) + (literal < 0 ? 1 : 0);
+  }
+
+  private static int luby(int restarts) {
+    var size = 1;
+    var sequence = 0;
+    while (size < restarts + 1) {
+      sequence++;
+      size = 2 * size + 1;
+    }
+    var x = restarts;
+    while (size - 1 != x) {
+      size = (size - 1) >> 1;
+      sequence--;
+      x = x % size;
+    }
+    return 1 << sequence;
+  }
+}
@@ -0,0 +1,169 @@
+package com.sadraskol.peg.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+// Runs an external solver following the SAT competition conventions: the problem is written to a
+// DIMACS file given as last argument, and the solver prints an "s" status line and "v" lines with
+// the model. Assumptions are written as unit clauses.
+public class DimacsBackend implements SatBackend {
+  private final List<String> command;
+  private final List<int[]> clauses;
+  private int variables;
+  private int[] model;
+  private long timeout;
+  private volatile Process running;
+  private volatile boolean interrupted;
+
+  public DimacsBackend(List<String> command) {
+    this.command = command;
+    this.clauses = new ArrayList<>();
+    this.variables = 0;
+    this.model = new int[0];
+    this.timeout = Long.MAX_VALUE;
+  }
+
+  @Override
+  public int variables() {
+    return variables;
+  }
+
+  @Override
+  public void newVariables(int count) {
+    variables = Math.max(variables, count);
+  }
+
+  @Override
+  public void addClause(int[] literals) throws ContradictionException {
+    if (literals.length == 0) {
+      throw new ContradictionException("Cannot satisfy an empty clause");
+    }
+    for (var literal : literals) {
+      newVariables(Math.abs(literal));
+    }
+    clauses.add(literals.clone());
+  }
+
+  public void write(Writer writer, int[] assumptions) throws IOException {
+    writer.write("p cnf " + variables + " " + (clauses.size() + assumptions.length) + "\n");
+    for (var clause : clauses) {
+      for (var literal : clause) {
+        writer.write(literal + " ");
+      }
+      writer.write("0\n");
+    }
+    for (var assumption : assumptions) {
+      writer.write(assumption + " 0\n");
+    }
+    writer.flush();
+  }
+
+  @Override
+  public boolean isSatisfiable(int[] assumptions) throws TimeoutException {
+    try {
+      var file = Files.createTempFile("peg", ".cnf");
+      try {
+        try (var writer = Files.newBufferedWriter(file)) {
+          write(writer, assumptions);
+        }
+        var arguments = new ArrayList<>(command);
+        arguments.add(file.toString());
+        interrupted = false;
+        var process =
+            new ProcessBuilder(arguments).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        running = process;
+        if (timeout != Long.MAX_VALUE) {
+          CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS)
+              .execute(() -> stop(process));
+        }
+        try {
+          return read(process);
+        } finally {
+          running = null;
+          process.destroy();
+        }
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not run solver: " + command, e);
+    }
+  }
+
+  private boolean read(Process process) throws IOException, TimeoutException {
+    Boolean satisfiable = null;
+    var assignment = new int[variables];
+    try (var reader =
+        new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("s ")) {
+          switch (line.substring(2).trim()) {
+            case "SATISFIABLE" -> satisfiable = true;
+            case "UNSATISFIABLE" -> satisfiable = false;
+            default -> throw new TimeoutException("Solver gave up: " + line);
+          }
+        } else if (line.startsWith("v ")) {
+          for (var token : line.substring(2).trim().split("\\s+")) {
+            var literal = Integer.parseInt(token);
+            if (literal != 0 && Math.abs(literal) <= variables) {
+              assignment[Math.abs(literal) - 1] = literal;
+            }
+          }
+        }
+      }
+    }
+    if (satisfiable == null && interrupted) {
+      throw new TimeoutException("Solver was interrupted: " + command);
+    }
+    if (satisfiable == null) {
+      throw new IllegalStateException("Solver did not report a status: " + command);
+    }
+    if (satisfiable) {
+      for (var i = 0; i < assignment.length; i++) {
+        if (assignment[i] == 0) {
+          assignment[i] = -(i + 1);
+        }
+      }
+      model = assignment;
+    }
+    return satisfiable;
+  }
+
+  @Override
+  public void interrupt() {
+    var process = running;
+    if (process != null) {
+      stop(process);
+    }
+  }
+
+  @Override
+  public void timeout(long millis) {
+    timeout = millis;
+  }
+
+  private void stop(Process process) {
+    if (running == process) {
+      interrupted = true;
+      process.destroyForcibly();
+    }
+  }
+
+  @Override
+  public int[] model() {
+    return model;
+  }
+}
@@ -1,108 +1,237 @@
 package com.sadraskol.peg.backend;
 
+import com.sadraskol.peg.engine.Deadline;
+import com.sadraskol.peg.engine.Interner;
 import com.sadraskol.peg.engine.Operator;
 import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Propositions;
 import com.sadraskol.peg.engine.Set;
 import com.sadraskol.peg.engine.Value;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class Evaluator {
-  private final Deque<Map<String, Value>> variables;
+  private static final int PARALLEL_THRESHOLD = 1024;
+  private static final int DEADLINE_STRIDE = 1024;
+
+  private final Map<String, Value> bindings;
+  private final Interner interner;
+  private final Propositions propositions;
+  private final Deadline deadline;
+  private Value[] slots;
+  private String[] names;
+  private int depth;
+  // Large expansions are split on this pool, or expanded sequentially when it is null.
+  private final ForkJoinPool pool;
 
   public Evaluator() {
-    this.variables = new ArrayDeque<>();
-    this.variables.push(new HashMap<>());
+    this(false);
   }
 
-  public Proposition evaluate(Proposition proposition) {
-    return evaluate(proposition, false);
+  public Evaluator(boolean parallel) {
+    this(parallel ? ForkJoinPool.commonPool() : null, Deadline.none());
+  }
+
+  public Evaluator(ForkJoinPool pool, Deadline deadline) {
+    this(
+        new HashMap<>(),
+        new Interner(),
+        new Propositions(deadline),
+        deadline,
+        new Value[8],
+        new String[8],
+        0,
+        pool);
+  }
+
+  private Evaluator(
+      Map<String, Value> bindings,
+      Interner interner,
+      Propositions propositions,
+      Deadline deadline,
+      Value[] slots,
+      String[] names,
+      int depth,
+      ForkJoinPool pool) {
+    this.bindings = bindings;
+    this.interner = interner;
+    this.propositions = propositions;
+    this.deadline = deadline;
+    this.slots = slots;
+    this.names = names;
+    this.depth = depth;
+    this.pool = pool;
+  }
+
+  public Evaluator fork() {
+    return new Evaluator(
+        bindings, interner, propositions, deadline, slots.clone(), names.clone(), depth, pool);
+  }
+
+  public Interner interner() {
+    return interner;
+  }
+
+  public Propositions propositions() {
+    return propositions;
   }
 
-  public Proposition evaluate(Proposition proposition, boolean reify) {
+  public Proposition evaluate(Proposition proposition) {
     switch (proposition) {
       case Proposition.Binary primary -> {
-        return evaluateBinaryOp(primary, reify);
+        return evaluateBinaryOp(primary);
       }
       case Proposition.Forall forall -> {
-        var propositions = new ArrayList<Proposition>();
-        Set set = resolveSet(forall.set());
-        if (!(set instanceof Set.Literal)) {
-          throw new IllegalStateException("Expected literal set with values, got: " + set);
-        }
-        if (forall.args().size() == 1) {
-          for (var value : ((Set.Literal) set).values()) {
-            variables.push(Map.of(forall.args().getFirst().name(), value));
-            propositions.add(evaluate(forall.predicate(), reify));
-            variables.pop();
-          }
-        } else if (forall.args().size() == 2) {
-          var values = ((Set.Literal) set).values();
-          var pairs =
-              values.stream()
-                  .flatMap(v1 -> values.stream().map(v2 -> new Value.Tuple(List.of(v1, v2))))
-                  .toList();
-
-          for (var pair : pairs) {
-            variables.push(
-                Map.of(
-                    forall.args().get(0).name(),
-                    pair.values().get(0),
-                    forall.args().get(1).name(),
-                    pair.values().get(1)));
-            propositions.add(evaluate(forall.predicate(), reify));
-            variables.pop();
-          }
-        } else {
-          throw new IllegalStateException(
-              "Does not support more than 2 args in forall/exists loops");
-        }
-        return propositions.stream().reduce(new Proposition.True(), Proposition.And::new);
+        return propositions.conjunction(
+            expand(new Quantifier(forall.args(), forall.predicate()), forall.set()));
       }
       case Proposition.Exists exists -> {
-        var propositions = new ArrayList<Proposition>();
-        for (var arg : exists.args()) {
-          Set set = resolveSet(exists.set());
-          if (!(set instanceof Set.Literal)) {
-            throw new IllegalStateException("Expected literal set with values, got: " + set);
-          }
-          for (var value : ((Set.Literal) set).values()) {
-            variables.push(Map.of(arg.name(), value));
-            propositions.add(evaluate(exists.predicate(), false));
-            variables.pop();
-          }
-        }
-        return propositions.stream().reduce(new Proposition.False(), Proposition.Or::new);
+        return propositions.disjunction(
+            expand(new Quantifier(exists.args(), exists.predicate()), exists.set()));
+      }
+      case Proposition.Count count -> {
+        return propositions.cardinality(
+            expand(new Quantifier(count.args(), count.predicate()), count.set()),
+            count.min(),
+            count.max());
       }
       case Proposition.Not not -> {
-        return evaluate(not.other().negate(), reify);
+        return evaluate(not.other().negate());
       }
       case Proposition.Or or -> {
-        return new Proposition.Or(evaluate(or.left(), reify), evaluate(or.right(), reify));
+        return propositions.or(evaluate(or.left()), evaluate(or.right()));
       }
       case Proposition.And and -> {
-        return new Proposition.And(evaluate(and.left(), reify), evaluate(and.right(), reify));
+        return propositions.and(evaluate(and.left()), evaluate(and.right()));
+      }
+      case Proposition.Disjunction disjunction -> {
+        return propositions.disjunction(
+            disjunction.operands().stream().map(operand -> evaluate(operand)).toList());
+      }
+      case Proposition.Conjunction conjunction -> {
+        return propositions.conjunction(
+            conjunction.operands().stream().map(operand -> evaluate(operand)).toList());
       }
       default -> throw new IllegalStateException("Cannot evaluate proposition: " + proposition);
     }
   }
 
-  private Proposition evaluateBinaryOp(Proposition.Binary binary, boolean reify) {
+  private record Quantifier(List<Value.Variable> args, Proposition predicate) {}
+
+  private List<Proposition> expand(Quantifier quantifier, Value.Set domain) {
+    Set set = resolveSet(domain);
+    if (!(set instanceof Set.Literal literal)) {
+      throw new IllegalStateException("Expected literal set with values, got: " + set);
+    }
+    var values = literal.values();
+    var size = 1;
+    for (var _ : quantifier.args()) {
+      size = Math.multiplyExact(size, values.size());
+    }
+    if (pool != null && size > PARALLEL_THRESHOLD) {
+      return pool.invoke(new Expansion(quantifier, values, 0, size));
+    }
+    return expand(quantifier, values, 0, size);
+  }
+
+  // Iterates the combinations from..to of the domain product like an odometer: the variables are
+  // bound in the slots above the current depth and only the digits that changed are rebound.
+  private List<Proposition> expand(Quantifier quantifier, List<Value> values, int from, int to) {
+    var result = new ArrayList<Proposition>(Math.max(to - from, 0));
+    if (from >= to) {
+      return result;
+    }
+    var args = quantifier.args();
+    var digits = new int[args.size()];
+    var rest = from;
+    for (var i = args.size() - 1; i >= 0; i--) {
+      digits[i] = rest % values.size();
+      rest /= values.size();
+    }
+    var base = depth;
+    if (base + args.size() > slots.length) {
+      slots = Arrays.copyOf(slots, Math.max(slots.length * 2, base + args.size()));
+      names = Arrays.copyOf(names, slots.length);
+    }
+    for (var i = 0; i < args.size(); i++) {
+      names[base + i] = args.get(i).name();
+      slots[base + i] = values.get(digits[i]);
+    }
+
+    depth = base + args.size();
+    for (var index = from; index < to; index++) {
+      if ((index - from) % DEADLINE_STRIDE == 0) {
+        deadline.check();
+      }
+      result.add(evaluate(quantifier.predicate()));
+      for (var i = args.size() - 1; i >= 0; i--) {
+        digits[i] = digits[i] + 1 < values.size() ? digits[i] + 1 : 0;
+        slots[base + i] = values.get(digits[i]);
+        if (digits[i] != 0) {
+          break;
+        }
+      }
+    }
+    depth = base;
+    return result;
+  }
+
+  // Splits the iterations of a quantifier in halves until they are small enough to be expanded
+  // sequentially on a fork of the evaluator, then concatenates the operands of both halves in
+  // order.
+  private class Expansion extends RecursiveTask<List<Proposition>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Quantifier quantifier;
+    private final transient List<Value> values;
+    private final int from;
+    private final int to;
+
+    Expansion(Quantifier quantifier, List<Value> values, int from, int to) {
+      this.quantifier = quantifier;
+      this.values = values;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<Proposition> compute() {
+      if (to - from <= PARALLEL_THRESHOLD) {
+        return Evaluator.this.fork().expand(quantifier, values, from, to);
+      }
+      var middle = from + (to - from) / 2;
+      var left = new Expansion(quantifier, values, from, middle);
+      left.fork();
+      var right = new Expansion(quantifier, values, middle, to).compute();
+      var operands = new ArrayList<>(left.join());
+      operands.addAll(right);
+      return operands;
+    }
+  }
+
+  private Proposition evaluateBinaryOp(Proposition.Binary binary) {
     switch (binary.op()) {
       case Operator.Equal -> {
         switch (binary.left()) {
           case Value.Set set -> {
             var left = (Set.Named) set.set();
             var right = binary.right();
+            if (right instanceof Value.Set(Set.Literal literal)) {
+              right =
+                  new Value.Set(
+                      new Set.Literal(literal.values().stream().map(interner::intern).toList()));
+            }
             current().put(left.name(), right);
-            return new Proposition.True();
+            return propositions.truth();
           }
-          case Value.Variable _, Value.Member _ -> {
+          case Value.Variable _, Value.Slot _, Value.Member _ -> {
             var left = resolveValue(binary.left());
             var right = resolveValue(binary.right());
             if (left.equals(right)) {
-              return new Proposition.True();
+              return propositions.truth();
             } else {
-              return new Proposition.False();
+              return propositions.falsity();
             }
           }
           default ->
@@ -112,13 +241,13 @@ public class Evaluator {
       }
       case Operator.Different -> {
         switch (binary.left()) {
-          case Value.Variable _, Value.Member _ -> {
+          case Value.Variable _, Value.Slot _, Value.Member _ -> {
             var left = resolveValue(binary.left());
             var right = resolveValue(binary.right());
             if (left.equals(right)) {
-              return new Proposition.False();
+              return propositions.falsity();
             } else {
-              return new Proposition.True();
+              return propositions.truth();
             }
           }
           default ->
@@ -134,21 +263,13 @@ public class Evaluator {
         switch (set) {
           case Set.Literal literal -> {
             if (literal.values().contains(value)) {
-              return new Proposition.True();
-            } else {
-              return new Proposition.False();
-            }
-          }
-          case Set.Product product -> {
-            if (reify) {
-              product.including(value);
-              return new Proposition.True();
+              return propositions.truth();
             } else {
-              return new Proposition.Binary(Operator.In, value, binary.right());
+              return propositions.falsity();
             }
           }
           default -> {
-            return new Proposition.Binary(Operator.In, value, binary.right());
+            return propositions.binary(Operator.In, value, binary.right());
           }
         }
       }
@@ -160,21 +281,13 @@ public class Evaluator {
         switch (set) {
           case Set.Literal literal -> {
             if (literal.values().contains(value)) {
-              return new Proposition.False();
+              return propositions.falsity();
             } else {
-              return new Proposition.True();
-            }
-          }
-          case Set.Product product -> {
-            if (reify) {
-              product.excluding(value);
-              return new Proposition.True();
-            } else {
-              return new Proposition.Binary(Operator.NotIn, value, binary.right());
+              return propositions.truth();
             }
           }
           default -> {
-            return new Proposition.Binary(Operator.NotIn, value, binary.right());
+            return propositions.binary(Operator.NotIn, value, binary.right());
           }
         }
       }
@@ -185,15 +298,19 @@ public class Evaluator {
   private Value resolveValue(Value value) {
     switch (value) {
       case Value.Number _, Value.Str _ -> {
-        return value;
+        return interner.intern(value);
       }
       case Value.Tuple tuple -> {
-        return new Value.Tuple(tuple.values().stream().map(this::resolveValue).toList());
+        return interner.intern(
+            new Value.Tuple(tuple.values().stream().map(this::resolveValue).toList()));
+      }
+      case Value.Slot slot -> {
+        return slots[slot.index()];
       }
       case Value.Variable variable -> {
-        for (var stack : variables) {
-          if (stack.get(variable.name()) != null) {
-            return stack.get(variable.name());
+        for (var index = depth - 1; index >= 0; index--) {
+          if (names[index].equals(variable.name())) {
+            return slots[index];
           }
         }
         throw new IllegalStateException("Cannot resolve value named: " + variable);
@@ -207,7 +324,7 @@ public class Evaluator {
   }
 
   public Map<String, Value> current() {
-    return variables.peek();
+    return bindings;
   }
 
   public Set resolveSet(Value.Set set) {
@@ -216,57 +333,19 @@ public class Evaluator {
         return set.set();
       }
       case Set.Named named -> {
-        for (var stack : variables) {
-          if (stack.get(named.name()) != null) {
-            return ((Value.Set) stack.get(named.name())).set();
-          }
+        var value = bindings.get(named.name());
+        if (value == null) {
+          throw new IllegalStateException("Cannot find set with name: " + set);
         }
-        throw new IllegalStateException("Cannot find set with name: " + set);
+        return ((Value.Set) value).set();
       }
       case Set.Product product -> {
         return product;
       }
-      case Set.Universe _ -> throw new IllegalStateException("Cannot resolve Universe set");
-    }
-  }
-
-  public Map<String, Set> reify() {
-    var result = new HashMap<String, Set>();
-    for (var stack : current().entrySet()) {
-      var val = stack.getValue();
-      switch (val) {
-        case Value.Set set -> {
-          switch (set.set()) {
-            case Set.Literal literal -> result.put(stack.getKey(), literal);
-            case Set.Product product -> {
-              var scalar = new HashSet<Value>();
-              var left = resolveSet(product.leftSet());
-              var right = resolveSet(product.rightSet());
-
-              var leftElements = ((Set.Literal) left).values();
-              var rightElements = ((Set.Literal) right).values();
-
-              for (var l : leftElements) {
-                for (var r : rightElements) {
-                  scalar.add(new Value.Tuple(List.of(l, r)));
-                }
-              }
-
-              scalar.removeAll(product.excludes());
-
-              if (product.including().containsAll(scalar)) {
-                result.put(stack.getKey(), new Set.Literal(scalar.stream().toList()));
-              } else {
-                throw new IllegalStateException("Could not resolve scalar set: " + product);
-              }
-            }
-            default ->
-                throw new IllegalStateException("Expected a reified set, but got: " + set.set());
-          }
-        }
-        default -> throw new IllegalStateException("Expected a final value, but got: " + val);
+      case Set.Relation relation -> {
+        return relation;
       }
+      case Set.Universe _ -> throw new IllegalStateException("Cannot resolve Universe set");
     }
-    return result;
   }
 }
@@ -0,0 +1,195 @@
+package com.sadraskol.peg.backend;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+// Feeds the same clauses to several backends and races them on a thread each: the first answer
+// wins and the others are interrupted, so they are idle and in sync for the next solve. The
+// threads live as long as the portfolio and are daemons, so an unclosed one does not hold the JVM.
+public class Portfolio implements SatBackend {
+  private static final long POLL_MILLIS = 10;
+
+  private final List<SatBackend> backends;
+  private final ExecutorService executor;
+  private SatBackend winner;
+
+  public Portfolio(List<SatBackend> backends) {
+    if (backends.isEmpty()) {
+      throw new IllegalStateException("A portfolio needs at least one backend");
+    }
+    this.backends = List.copyOf(backends);
+    this.executor =
+        Executors.newFixedThreadPool(
+            this.backends.size(), Thread.ofPlatform().name("portfolio-", 0).daemon().factory());
+    this.winner = this.backends.getFirst();
+  }
+
+  @Override
+  public int variables() {
+    return backends.getFirst().variables();
+  }
+
+  @Override
+  public void newVariables(int count) {
+    for (var backend : backends) {
+      backend.newVariables(count);
+    }
+  }
+
+  @Override
+  public void addClause(int[] literals) throws ContradictionException {
+    each(backend -> backend.addClause(literals));
+  }
+
+  @Override
+  public boolean cardinalities() {
+    return backends.stream().allMatch(SatBackend::cardinalities);
+  }
+
+  @Override
+  public void addAtMost(int[] literals, int degree) throws ContradictionException {
+    each(backend -> backend.addAtMost(literals, degree));
+  }
+
+  @Override
+  public void addAtLeast(int[] literals, int degree) throws ContradictionException {
+    each(backend -> backend.addAtLeast(literals, degree));
+  }
+
+  @Override
+  public void addExactly(int[] literals, int degree) throws ContradictionException {
+    each(backend -> backend.addExactly(literals, degree));
+  }
+
+  @Override
+  public boolean pseudoBoolean() {
+    return backends.stream().allMatch(SatBackend::pseudoBoolean);
+  }
+
+  @Override
+  public void addAtMost(int[] literals, int[] weights, int degree) throws ContradictionException {
+    each(backend -> backend.addAtMost(literals, weights, degree));
+  }
+
+  private interface Constraint {
+    void add(SatBackend backend) throws ContradictionException;
+  }
+
+  // Every backend gets the constraint even when one finds it contradictory, so they stay in sync.
+  private void each(Constraint constraint) throws ContradictionException {
+    ContradictionException contradiction = null;
+    for (var backend : backends) {
+      try {
+        constraint.add(backend);
+      } catch (ContradictionException e) {
+        contradiction = e;
+      }
+    }
+    if (contradiction != null) {
+      throw contradiction;
+    }
+  }
+
+  @Override
+  public boolean isSatisfiable(int[] assumptions) throws TimeoutException {
+    if (backends.size() == 1) {
+      return backends.getFirst().isSatisfiable(assumptions);
+    }
+    var race = new ExecutorCompletionService<Boolean>(executor);
+    var futures = new LinkedHashMap<Future<Boolean>, SatBackend>();
+    try {
+      for (var backend : backends) {
+        futures.put(race.submit(() -> backend.isSatisfiable(assumptions)), backend);
+      }
+      TimeoutException timeout = null;
+      for (var i = 0; i < backends.size(); i++) {
+        var future = race.take();
+        try {
+          var satisfiable = future.get();
+          winner = futures.get(future);
+          return satisfiable;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof TimeoutException cause) {
+            timeout = cause;
+          } else if (e.getCause() instanceof RuntimeException cause) {
+            throw cause;
+          } else {
+            throw new IllegalStateException("Solver failed", e.getCause());
+          }
+        }
+      }
+      throw timeout;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while solving", e);
+    } finally {
+      cancel(futures);
+    }
+  }
+
+  @Override
+  public int[] core(int[] assumptions) {
+    return winner.core(assumptions);
+  }
+
+  @Override
+  public void interrupt() {
+    for (var backend : backends) {
+      backend.interrupt();
+    }
+  }
+
+  @Override
+  public void timeout(long millis) {
+    for (var backend : backends) {
+      backend.timeout(millis);
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    for (var backend : backends) {
+      backend.close();
+    }
+  }
+
+  // A backend only notices an interruption once it is searching, so losers are interrupted until
+  // they give up.
+  private static void cancel(Map<Future<Boolean>, SatBackend> futures) {
+    for (var entry : futures.entrySet()) {
+      while (!entry.getKey().isDone()) {
+        entry.getValue().interrupt();
+        try {
+          entry.getKey().get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (java.util.concurrent.TimeoutException | ExecutionException e) {
+          // Still running, or gave up as asked.
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  @Override
+  public int[] model() {
+    return winner.model();
+  }
+
+  @Override
+  public Map<String, Number> statistics() {
+    var statistics = new LinkedHashMap<>(winner.statistics());
+    statistics.put("winner", backends.indexOf(winner));
+    return statistics;
+  }
+}
@@ -0,0 +1,103 @@
+package com.sadraskol.peg.backend;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+public class Sat4jBackend implements SatBackend {
+  private final ISolver solver;
+
+  public Sat4jBackend(ISolver solver) {
+    this.solver = solver;
+  }
+
+  @Override
+  public int variables() {
+    return solver.nVars();
+  }
+
+  @Override
+  public void newVariables(int count) {
+    solver.newVar(count);
+  }
+
+  @Override
+  public void addClause(int[] literals) throws ContradictionException {
+    solver.addClause(new VecInt(literals));
+  }
+
+  @Override
+  public boolean cardinalities() {
+    return true;
+  }
+
+  @Override
+  public void addAtMost(int[] literals, int degree) throws ContradictionException {
+    solver.addAtMost(new VecInt(literals), degree);
+  }
+
+  @Override
+  public void addAtLeast(int[] literals, int degree) throws ContradictionException {
+    solver.addAtLeast(new VecInt(literals), degree);
+  }
+
+  @Override
+  public void addExactly(int[] literals, int degree) throws ContradictionException {
+    solver.addExactly(new VecInt(literals), degree);
+  }
+
+  @Override
+  public boolean pseudoBoolean() {
+    return solver instanceof IPBSolver;
+  }
+
+  @Override
+  public void addAtMost(int[] literals, int[] weights, int degree) throws ContradictionException {
+    if (!(solver instanceof IPBSolver pb)) {
+      throw new IllegalStateException("Backend does not support pseudo-boolean constraints");
+    }
+    pb.addAtMost(new VecInt(literals), new VecInt(weights), degree);
+  }
+
+  @Override
+  public boolean isSatisfiable(int[] assumptions) throws TimeoutException {
+    return solver.isSatisfiable(new VecInt(assumptions));
+  }
+
+  // sat4j explains a conflict with the assumptions it resolved on, negated or not depending on the
+  // solver, so both signs are matched.
+  @Override
+  public int[] core(int[] assumptions) {
+    var explanation = solver.unsatExplanation();
+    if (explanation == null) {
+      return assumptions;
+    }
+    return Arrays.stream(assumptions)
+        .filter(literal -> explanation.contains(literal) || explanation.contains(-literal))
+        .toArray();
+  }
+
+  @Override
+  public void interrupt() {
+    solver.expireTimeout();
+  }
+
+  @Override
+  public void timeout(long millis) {
+    solver.setTimeoutMs(millis);
+  }
+
+  @Override
+  public int[] model() {
+    return solver.model();
+  }
+
+  @Override
+  public Map<String, Number> statistics() {
+    return solver.getStat();
+  }
+}
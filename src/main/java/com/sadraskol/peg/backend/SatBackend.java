@@ -0,0 +1,64 @@
+package com.sadraskol.peg.backend;
+
+import java.util.Map;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+// What the session needs from a SAT solver: clauses over DIMACS literals, solving under
+// assumptions and reading the model back. Backends without native cardinality constraints get
+// them encoded as clauses by the session.
+public interface SatBackend {
+  int variables();
+
+  void newVariables(int count);
+
+  void addClause(int[] literals) throws ContradictionException;
+
+  default boolean cardinalities() {
+    return false;
+  }
+
+  default void addAtMost(int[] literals, int degree) throws ContradictionException {
+    throw new IllegalStateException("Backend does not support cardinality constraints");
+  }
+
+  default void addAtLeast(int[] literals, int degree) throws ContradictionException {
+    throw new IllegalStateException("Backend does not support cardinality constraints");
+  }
+
+  default void addExactly(int[] literals, int degree) throws ContradictionException {
+    throw new IllegalStateException("Backend does not support cardinality constraints");
+  }
+
+  // Whether addAtMost accepts weighted literals, which bounds the cost of an objective natively.
+  default boolean pseudoBoolean() {
+    return false;
+  }
+
+  default void addAtMost(int[] literals, int[] weights, int degree) throws ContradictionException {
+    throw new IllegalStateException("Backend does not support pseudo-boolean constraints");
+  }
+
+  boolean isSatisfiable(int[] assumptions) throws TimeoutException;
+
+  // The assumptions that are enough for the last search to be unsatisfiable. Backends that cannot
+  // tell return them all.
+  default int[] core(int[] assumptions) {
+    return assumptions;
+  }
+
+  // Asks a search running on another thread to stop with a TimeoutException.
+  default void interrupt() {}
+
+  // Bounds the following searches, which throw a TimeoutException once it has elapsed.
+  default void timeout(long millis) {}
+
+  // Releases the threads a backend holds between searches. It is not used afterwards.
+  default void close() {}
+
+  int[] model();
+
+  default Map<String, Number> statistics() {
+    return Map.of();
+  }
+}
@@ -0,0 +1,51 @@
+package com.sadraskol.peg.backend;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.sat4j.minisat.SolverFactory;
+
+public class SatBackends {
+  private SatBackends() {}
+
+  public static Supplier<SatBackend> sat4j() {
+    return () -> new Sat4jBackend(SolverFactory.newDefault());
+  }
+
+  // Any configuration of sat4j's minisat factory, such as Glucose21 or Light.
+  public static Supplier<SatBackend> sat4j(String configuration) {
+    if (!List.of(SolverFactory.instance().solverNames()).contains(configuration)) {
+      throw new IllegalStateException("Unknown sat4j configuration: " + configuration);
+    }
+    return () -> new Sat4jBackend(SolverFactory.instance().createSolverByName(configuration));
+  }
+
+  // sat4j's cutting planes solver, which bounds the cost of objectives with a single
+  // pseudo-boolean constraint instead of a clausal counter.
+  public static Supplier<SatBackend> pseudoBoolean() {
+    return () -> new Sat4jBackend(org.sat4j.pb.SolverFactory.newDefault());
+  }
+
+  // Races the given sat4j configurations, one thread each.
+  public static Supplier<SatBackend> portfolio(List<String> configurations) {
+    var backends = configurations.stream().map(SatBackends::sat4j).toList();
+    return () -> new Portfolio(backends.stream().map(Supplier::get).toList());
+  }
+
+  // Configurations with different restart, phase and clause deletion strategies, as many as
+  // there are processors.
+  public static Supplier<SatBackend> portfolio() {
+    var configurations =
+        List.of("Default", "Glucose21", "MiniLearningHeapRsatExpSimpLuby", "BestWL", "SAT");
+    var processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+    return portfolio(configurations.subList(0, Math.min(processors, configurations.size())));
+  }
+
+  public static Supplier<SatBackend> cdcl() {
+    return Cdcl::new;
+  }
+
+  // The problem is written to a DIMACS file whose path is appended to the command.
+  public static Supplier<SatBackend> dimacs(List<String> command) {
+    return () -> new DimacsBackend(command);
+  }
+}
@@ -0,0 +1,66 @@
+package com.sadraskol.peg.backend;
+
+import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Terms;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+
+public class Translator {
+  private final Terms terms;
+  private final SatBackend solver;
+
+  public Translator(Terms terms, SatBackend solver) {
+    this.terms = terms;
+    this.solver = solver;
+  }
+
+  public int add(Proposition clause) throws ContradictionException {
+    switch (clause) {
+      case Proposition.False _ -> throw new ContradictionException("Cannot satisfy a false clause");
+      case Proposition.Cardinality cardinality -> {
+        return addCardinality(cardinality);
+      }
+      default -> {
+        var literals = literals(clause);
+        if (literals.length > 0) {
+          solver.addClause(literals);
+        }
+        return literals.length;
+      }
+    }
+  }
+
+  // Handed to the solver as native cardinality constraints rather than clauses.
+  private int addCardinality(Proposition.Cardinality cardinality) throws ContradictionException {
+    var literals = literals(new Proposition.Disjunction(cardinality.literals()));
+    if (cardinality.min() == cardinality.max()) {
+      solver.addExactly(literals, cardinality.max());
+      return literals.length;
+    }
+    if (cardinality.max() < literals.length) {
+      solver.addAtMost(literals, cardinality.max());
+    }
+    if (cardinality.min() > 0) {
+      solver.addAtLeast(literals, cardinality.min());
+    }
+    return literals.length;
+  }
+
+  public int[] literals(Proposition clause) {
+    var literals = new VecInt();
+    clause.literals(
+        (term, negated) -> {
+          if (term instanceof Proposition.Cardinality) {
+            throw new IllegalStateException("Cannot translate nested cardinality: " + term);
+          }
+          var id = terms.intern(term);
+          literals.push(negated ? -id : id);
+        });
+    if (terms.size() > solver.variables()) {
+      solver.newVariables(terms.size());
+    }
+    var result = new int[literals.size()];
+    literals.copyTo(result);
+    return result;
+  }
+}
@@ -0,0 +1,88 @@
+package com.sadraskol.peg.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+// Immutable boolean matrix whose cell (row, column) is numbered row * columns + column. Dense
+// matrices keep a bit per cell and sparse ones the sorted numbers of their set cells, whichever
+// takes less memory: an int costs as much as 32 cells.
+public final class BitMatrix {
+  private final int rows;
+  private final int columns;
+  private final BitSet dense;
+  private final int[] sparse;
+
+  private BitMatrix(int rows, int columns, BitSet dense, int[] sparse) {
+    this.rows = rows;
+    this.columns = columns;
+    this.dense = dense;
+    this.sparse = sparse;
+  }
+
+  public static BitMatrix of(int rows, int columns, BitSet cells) {
+    var size = Math.multiplyExact(rows, columns);
+    if (cells.length() > size) {
+      throw new IllegalStateException("Cell " + (cells.length() - 1) + " is out of the matrix");
+    }
+    if ((long) cells.cardinality() * Integer.SIZE < size) {
+      return new BitMatrix(rows, columns, null, cells.stream().toArray());
+    }
+    return new BitMatrix(rows, columns, (BitSet) cells.clone(), null);
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int columns() {
+    return columns;
+  }
+
+  public boolean get(int row, int column) {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      return false;
+    }
+    var cell = row * columns + column;
+    return dense != null ? dense.get(cell) : Arrays.binarySearch(sparse, cell) >= 0;
+  }
+
+  public int cardinality() {
+    return dense != null ? dense.cardinality() : sparse.length;
+  }
+
+  public boolean isSparse() {
+    return dense == null;
+  }
+
+  // Numbers of the set cells, in increasing order.
+  public IntStream cells() {
+    return dense != null ? dense.stream() : Arrays.stream(sparse);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof BitMatrix other) || rows != other.rows || columns != other.columns) {
+      return false;
+    }
+    // The representation only depends on the dimensions and the cells.
+    return dense != null ? dense.equals(other.dense) : Arrays.equals(sparse, other.sparse);
+  }
+
+  @Override
+  public int hashCode() {
+    var hash = 31 * rows + columns;
+    for (var cell : (Iterable<Integer>) cells()::iterator) {
+      hash = 31 * hash + cell;
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "BitMatrix" + Arrays.toString(cells().toArray());
+  }
+}
@@ -0,0 +1,121 @@
+package com.sadraskol.peg.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Clausal encodings of cardinality constraints, for backends that only accept clauses. At least
+// min of the literals is encoded as at most size - min of their negations.
+public class Cardinalities {
+  private static final int GROUP = 3;
+
+  private Cardinalities() {}
+
+  public static List<Proposition> sequentialCounter(
+      Proposition.Cardinality cardinality, Supplier<? extends Proposition> auxiliaries) {
+    var literals = cardinality.literals();
+    var clauses = new ArrayList<Proposition>();
+    atMost(literals, cardinality.max(), auxiliaries, clauses);
+    if (cardinality.min() > 0) {
+      var negations = literals.stream().map(Propositions::negation).toList();
+      atMost(negations, literals.size() - cardinality.min(), auxiliaries, clauses);
+    }
+    return clauses;
+  }
+
+  // At most one, the bound of injective relations, uses the commander encoding: literals are split
+  // in groups of three that are pairwise exclusive, each group implies its commander, and at most
+  // one commander holds. Other bounds fall back to the sequential counter.
+  public static List<Proposition> commander(
+      Proposition.Cardinality cardinality, Supplier<? extends Proposition> auxiliaries) {
+    var literals = cardinality.literals();
+    if (cardinality.max() != 1) {
+      return sequentialCounter(cardinality, auxiliaries);
+    }
+    var clauses = new ArrayList<Proposition>();
+    atMostOne(literals, auxiliaries, clauses);
+    if (cardinality.min() == 1) {
+      clauses.add(new Proposition.Disjunction(literals));
+    }
+    return clauses;
+  }
+
+  private static void atMostOne(
+      List<Proposition> literals,
+      Supplier<? extends Proposition> auxiliaries,
+      List<Proposition> clauses) {
+    while (literals.size() > GROUP) {
+      var commanders = new ArrayList<Proposition>();
+      for (var from = 0; from < literals.size(); from += GROUP) {
+        var group = literals.subList(from, Math.min(from + GROUP, literals.size()));
+        var commander = auxiliaries.get();
+        pairwise(group, clauses);
+        for (var literal : group) {
+          clauses.add(clause(Propositions.negation(literal), commander));
+        }
+        commanders.add(commander);
+      }
+      literals = commanders;
+    }
+    pairwise(literals, clauses);
+  }
+
+  private static void pairwise(List<Proposition> literals, List<Proposition> clauses) {
+    for (var i = 0; i < literals.size(); i++) {
+      for (var j = i + 1; j < literals.size(); j++) {
+        clauses.add(
+            clause(Propositions.negation(literals.get(i)), Propositions.negation(literals.get(j))));
+      }
+    }
+  }
+
+  // Sinz's sequential counter: counter[i][j] holds when more than j of the first i + 1 literals
+  // are true, which takes O(n.k) auxiliaries and clauses instead of the binomial pairwise
+  // encoding.
+  private static void atMost(
+      List<Proposition> literals,
+      int bound,
+      Supplier<? extends Proposition> auxiliaries,
+      List<Proposition> clauses) {
+    var size = literals.size();
+    if (bound >= size) {
+      return;
+    }
+    if (bound == 0) {
+      for (var literal : literals) {
+        clauses.add(Propositions.negation(literal));
+      }
+      return;
+    }
+
+    var counter = new Proposition[size - 1][bound];
+    for (var i = 0; i < size - 1; i++) {
+      for (var j = 0; j < bound; j++) {
+        counter[i][j] = auxiliaries.get();
+      }
+    }
+
+    clauses.add(clause(Propositions.negation(literals.getFirst()), counter[0][0]));
+    for (var j = 1; j < bound; j++) {
+      clauses.add(new Proposition.Not(counter[0][j]));
+    }
+    for (var i = 1; i < size - 1; i++) {
+      var literal = Propositions.negation(literals.get(i));
+      clauses.add(clause(literal, counter[i][0]));
+      clauses.add(clause(new Proposition.Not(counter[i - 1][0]), counter[i][0]));
+      for (var j = 1; j < bound; j++) {
+        clauses.add(clause(literal, new Proposition.Not(counter[i - 1][j - 1]), counter[i][j]));
+        clauses.add(clause(new Proposition.Not(counter[i - 1][j]), counter[i][j]));
+      }
+      clauses.add(clause(literal, new Proposition.Not(counter[i - 1][bound - 1])));
+    }
+    clauses.add(
+        clause(
+            Propositions.negation(literals.getLast()),
+            new Proposition.Not(counter[size - 2][bound - 1])));
+  }
+
+  private static Proposition clause(Proposition... literals) {
+    return new Proposition.Disjunction(List.of(literals));
+  }
+}
@@ -0,0 +1,7 @@
+package com.sadraskol.peg.engine;
+
+public enum CardinalityEncoding {
+  PseudoBoolean,
+  SequentialCounter,
+  Commander
+}
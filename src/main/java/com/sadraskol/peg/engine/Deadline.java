@@ -0,0 +1,80 @@
+package com.sadraskol.peg.engine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Cancellation token checked by the long running loops of grounding, normal forms and solving. It
+// expires at a point in time or when cancelled from another thread, whichever comes first.
+public final class Deadline {
+  public static class Exceeded extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public Exceeded() {
+      super("Deadline exceeded");
+    }
+  }
+
+  private final long nanos;
+  private final List<Runnable> cancellations;
+  private volatile boolean cancelled;
+
+  private Deadline(long nanos) {
+    this.nanos = nanos;
+    this.cancellations = new CopyOnWriteArrayList<>();
+    this.cancelled = false;
+  }
+
+  public static Deadline none() {
+    return new Deadline(Long.MAX_VALUE);
+  }
+
+  public static Deadline after(Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  public boolean bounded() {
+    return nanos != Long.MAX_VALUE;
+  }
+
+  public boolean expired() {
+    return cancelled || (bounded() && System.nanoTime() - nanos >= 0);
+  }
+
+  public long remainingMillis() {
+    if (cancelled) {
+      return 0;
+    }
+    if (!bounded()) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0, Duration.ofNanos(nanos - System.nanoTime()).toMillis());
+  }
+
+  public void check() {
+    if (expired()) {
+      throw new Exceeded();
+    }
+  }
+
+  public void cancel() {
+    cancelled = true;
+    for (var cancellation : cancellations) {
+      cancellation.run();
+    }
+  }
+
+  // Lets work that does not poll the deadline, such as a running solver, be stopped on cancel.
+  public void onCancel(Runnable cancellation) {
+    cancellations.add(cancellation);
+    if (cancelled) {
+      cancellation.run();
+    }
+  }
+
+  // Forgets a cancellation once its work is over, so a deadline shared by several runs does not
+  // keep what they released reachable.
+  public void remove(Runnable cancellation) {
+    cancellations.remove(cancellation);
+  }
+}
@@ -0,0 +1,6 @@
+package com.sadraskol.peg.engine;
+
+public enum Encoding {
+  Distributive,
+  Tseitin
+}
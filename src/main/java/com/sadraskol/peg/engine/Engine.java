@@ -7,29 +7,49 @@ import java.util.*;
 public class Engine {
   private final List<Declaration> declarations;
 
+  // Known from the records up front and never changed, so a cached engine can be shared by
+  // sessions that ask for propositions, requirements and objectives in any order.
   private final java.util.Set<Type> types;
 
   public Engine(List<Declaration> declarations) {
     this.declarations = declarations;
-    this.types = new HashSet<>();
+    this.types = types(declarations);
+  }
+
+  private static java.util.Set<Type> types(List<Declaration> declarations) {
+    var types = new HashSet<Type>();
+    for (var declaration : declarations) {
+      if (declaration instanceof Declaration.Record record) {
+        types.add(
+            new Type(
+                record.name(),
+                record.members().stream()
+                    .map(field -> new TypedRef(field.type(), field.name()))
+                    .toList(),
+                record.relations().stream()
+                    .map(relation -> new TypedRef(relation.type(), relation.name()))
+                    .toList()));
+      }
+    }
+    return java.util.Set.copyOf(types);
   }
 
   public List<Proposition> propositions() {
+    return propositions(declarations);
+  }
+
+  public List<Proposition> propositions(List<Declaration> declarations) {
     var propositions = new ArrayList<Proposition>();
+    var injectivity = new ArrayList<Proposition>();
     for (var declaration : declarations) {
       switch (declaration) {
         case Declaration.Record record -> {
-          var type = new Type(record.name(), new ArrayList<>(), new ArrayList<>());
           propositions.add(
               new Proposition.Binary(
                   Operator.Equal,
                   new Value.Set(new Set.Named(record.name())),
                   new Value.Set(new Set.Universe())));
-          for (var field : record.members()) {
-            type.fields().add(new TypedRef(field.type(), field.name()));
-          }
           for (var relation : record.relations()) {
-            type.relations().add(new TypedRef(relation.type(), relation.name()));
             String relationName = record.name() + "#" + relation.name();
             propositions.add(
                 new Proposition.Binary(
@@ -39,8 +59,10 @@ public class Engine {
                         new Set.Product(
                             new Value.Set(new Set.Named(record.name())),
                             new Value.Set(new Set.Named(relation.type()))))));
+            if (relation.isInjective()) {
+              injectivity.add(injective(record.name(), relation.type(), relationName));
+            }
           }
-          types.add(type);
         }
         case Declaration.Facts facts -> {
           for (var expr : facts.expressions()) {
@@ -52,9 +74,74 @@ public class Engine {
         default -> {}
       }
     }
+    // Sets are only bound once their facts are evaluated, so injectivity comes last.
+    propositions.addAll(injectivity);
     return propositions;
   }
 
+  // The constraints and injective relations of propositions(), which explain specs without models.
+  public List<Requirement> requirements() {
+    var requirements = new ArrayList<Requirement>();
+    for (var declaration : declarations) {
+      switch (declaration) {
+        case Declaration.Record record -> {
+          for (var relation : record.relations()) {
+            if (relation.isInjective()) {
+              var relationName = record.name() + "#" + relation.name();
+              requirements.add(
+                  new Requirement(
+                      record,
+                      "injective relation " + relationName,
+                      injective(record.name(), relation.type(), relationName)));
+            }
+          }
+        }
+        case Declaration.Constraint constraint ->
+            requirements.add(
+                new Requirement(constraint, "constraint", evaluatePredicate(constraint.expr())));
+        default -> {}
+      }
+    }
+    return requirements;
+  }
+
+  public List<Objective> objectives() {
+    var objectives = new ArrayList<Objective>();
+    for (var declaration : declarations) {
+      switch (declaration) {
+        case Declaration.Soft soft ->
+            objectives.add(
+                new Objective(Objective.Kind.Soft, evaluatePredicate(soft.expr()), soft.weight()));
+        case Declaration.Maximize maximize ->
+            objectives.add(
+                new Objective(Objective.Kind.Maximize, evaluatePredicate(maximize.expr()), 1));
+        case Declaration.Minimize minimize ->
+            objectives.add(
+                new Objective(Objective.Kind.Minimize, evaluatePredicate(minimize.expr()), 1));
+        default -> {}
+      }
+    }
+    return objectives;
+  }
+
+  // Each target of an injective relation is related to at most one record.
+  private static Proposition injective(String record, String target, String relation) {
+    var source = new Value.Variable("_source");
+    var image = new Value.Variable("_target");
+    return new Proposition.Forall(
+        List.of(image),
+        new Value.Set(new Set.Named(target)),
+        new Proposition.Count(
+            List.of(source),
+            new Value.Set(new Set.Named(record)),
+            new Proposition.Binary(
+                Operator.In,
+                new Value.Tuple(List.of(source, image)),
+                new Value.Set(new Set.Named(relation))),
+            0,
+            1));
+  }
+
   private Proposition evaluatePredicate(Expression expression) {
     switch (expression) {
       case Expression.Equal equal -> {
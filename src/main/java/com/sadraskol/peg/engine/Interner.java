@@ -0,0 +1,28 @@
+package com.sadraskol.peg.engine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Gives each distinct string, number and tuple a canonical instance, so equal values are the same
+// object: comparing them stops at the identity check and hashes are computed once.
+public class Interner {
+  private final ConcurrentHashMap<Value, Value> values;
+
+  public Interner() {
+    this.values = new ConcurrentHashMap<>();
+  }
+
+  public Value intern(Value value) {
+    var interned = values.get(value);
+    if (interned != null) {
+      return interned;
+    }
+    var canonical =
+        switch (value) {
+          case Value.Tuple tuple ->
+              new Value.Tuple(tuple.values().stream().map(this::intern).toList());
+          case Value.Str _, Value.Number _ -> value;
+          default -> throw new IllegalStateException("Cannot intern value: " + value);
+        };
+    return values.computeIfAbsent(canonical, v -> v);
+  }
+}
@@ -0,0 +1,30 @@
+package com.sadraskol.peg.engine;
+
+import java.util.List;
+
+// A preference between models rather than a constraint: a soft proposition should hold, and the
+// conjuncts of a maximized (minimized) proposition should hold as often (as rarely) as possible.
+public record Objective(Kind kind, Proposition proposition, int weight) {
+  public enum Kind {
+    Soft,
+    Maximize,
+    Minimize
+  }
+
+  // The grounded propositions that each cost the weight of the objective when they do not hold.
+  public List<Proposition> units(Proposition grounded) {
+    return switch (kind) {
+      case Soft -> List.of(grounded);
+      case Maximize -> Propositions.conjuncts(grounded);
+      case Minimize -> Propositions.conjuncts(grounded).stream().map(Objective::negation).toList();
+    };
+  }
+
+  private static Proposition negation(Proposition conjunct) {
+    return switch (conjunct) {
+      case Proposition.Binary _, Proposition.Not _ -> Propositions.negation(conjunct);
+      case Proposition.False _ -> new Proposition.True();
+      default -> conjunct.negate();
+    };
+  }
+}
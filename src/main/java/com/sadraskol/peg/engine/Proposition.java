@@ -1,5 +1,7 @@
 package com.sadraskol.peg.engine;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -10,18 +12,68 @@ public sealed interface Proposition {
   }
 
   default Stream<Proposition> splitConjonctiveNormalForm() {
-    return Stream.of(this);
+    return Propositions.conjuncts(this).stream();
   }
 
   default List<Proposition> terms() {
-    return List.of(this);
+    var terms = new ArrayList<Proposition>();
+    literals((term, _) -> terms.add(term));
+    return terms;
   }
 
-  default List<Integer> substituteTerms(List<Proposition> terms) {
-    if (!terms.contains(this)) {
-      throw new IllegalStateException("Could not substitute " + this + " from terms: " + terms);
-    } else {
-      return List.of(terms.indexOf(this) + 1);
+  default List<Integer> substituteTerms(Terms terms) {
+    var literals = new ArrayList<Integer>();
+    literals((term, negated) -> literals.add(negated ? -terms.id(term) : terms.id(term)));
+    return literals;
+  }
+
+  interface LiteralSink {
+    void accept(Proposition term, boolean negated);
+  }
+
+  // Visits the literals of a clause from left to right with an explicit stack: quantifier
+  // expansions build disjunctions and conjunctions deep enough to overflow a recursive walk.
+  default void literals(LiteralSink sink) {
+    var stack = new ArrayList<Proposition>();
+    var negations = new BitSet();
+    stack.add(this);
+    while (!stack.isEmpty()) {
+      var top = stack.size() - 1;
+      var negated = negations.get(top);
+      switch (stack.remove(top)) {
+        case Or(var left, var right) -> {
+          negations.set(top, negated);
+          stack.add(right);
+          negations.set(top + 1, negated);
+          stack.add(left);
+        }
+        case And(var left, var right) -> {
+          negations.set(top, negated);
+          stack.add(right);
+          negations.set(top + 1, negated);
+          stack.add(left);
+        }
+        case Disjunction(var operands) -> {
+          for (var operand : operands.reversed()) {
+            negations.set(stack.size(), negated);
+            stack.add(operand);
+          }
+        }
+        case Conjunction(var operands) -> {
+          for (var operand : operands.reversed()) {
+            negations.set(stack.size(), negated);
+            stack.add(operand);
+          }
+        }
+        case Not(var other) -> {
+          negations.set(top, !negated);
+          stack.add(other);
+        }
+        case Binary binary when binary.op() == Operator.NotIn ->
+            sink.accept(binary.negate(), !negated);
+        case True _ -> {}
+        case Proposition term -> sink.accept(term, negated);
+      }
     }
   }
 
@@ -61,16 +113,6 @@ public sealed interface Proposition {
       return new Proposition.Or(cnfLeft, cnfRight);
     }
 
-    public List<Proposition> terms() {
-      return Stream.concat(left.terms().stream(), right.terms().stream()).toList();
-    }
-
-    public List<Integer> substituteTerms(List<Proposition> terms) {
-      return Stream.concat(
-              left.substituteTerms(terms).stream(), right.substituteTerms(terms).stream())
-          .toList();
-    }
-
     public Proposition negate() {
       return new Proposition.And(left.negate(), right.negate());
     }
@@ -96,20 +138,46 @@ public sealed interface Proposition {
       return new Proposition.And(cnfLeft, cnfRight);
     }
 
-    public Stream<Proposition> splitConjonctiveNormalForm() {
-      return Stream.concat(left.splitConjonctiveNormalForm(), right.splitConjonctiveNormalForm());
+    public Proposition negate() {
+      return new Proposition.Or(left.negate(), right.negate());
+    }
+
+    public String toString() {
+      return "(" + left.toString() + " and " + right.toString() + ")";
+    }
+  }
+
+  // N-ary connectives built by Propositions when grounding: a quantifier expansion is a single
+  // node with one operand per combination rather than a chain of binary nodes.
+  record Conjunction(List<Proposition> operands) implements Proposition {
+    public Proposition conjunctiveNormalForm() {
+      return new Propositions().conjunctiveNormalForm(this);
     }
 
     public Proposition negate() {
-      return new Proposition.Or(left.negate(), right.negate());
+      return new Disjunction(operands.stream().map(Proposition::negate).toList());
+    }
+
+    public String toString() {
+      return operands.stream()
+          .map(Proposition::toString)
+          .collect(Collectors.joining(" and ", "(", ")"));
+    }
+  }
+
+  record Disjunction(List<Proposition> operands) implements Proposition {
+    public Proposition conjunctiveNormalForm() {
+      return new Propositions().conjunctiveNormalForm(this);
     }
 
-    public List<Proposition> terms() {
-      return Stream.concat(left.terms().stream(), right.terms().stream()).toList();
+    public Proposition negate() {
+      return new Conjunction(operands.stream().map(Proposition::negate).toList());
     }
 
     public String toString() {
-      return "(" + left.toString() + " and " + right.toString() + ")";
+      return operands.stream()
+          .map(Proposition::toString)
+          .collect(Collectors.joining(" or ", "(", ")"));
     }
   }
 
@@ -149,6 +217,37 @@ public sealed interface Proposition {
     }
   }
 
+  // Between min and max of the combinations of args in set satisfy the predicate.
+  record Count(List<Value.Variable> args, Value.Set set, Proposition predicate, int min, int max)
+      implements Proposition {
+    public Proposition conjunctiveNormalForm() {
+      throw new IllegalStateException("Cannot simplify count proposition");
+    }
+
+    public String toString() {
+      return "count "
+          + args.stream().map(Value.Variable::name).collect(Collectors.joining(", "))
+          + " in "
+          + set.toString()
+          + " between "
+          + min
+          + " and "
+          + max
+          + ": "
+          + predicate.toString();
+    }
+  }
+
+  // Grounded count: between min and max of the literals hold. It is kept as a clause of its own
+  // so the backend can hand it to the solver as is or encode it.
+  record Cardinality(List<Proposition> literals, int min, int max) implements Proposition {
+    public String toString() {
+      return literals.stream()
+          .map(Proposition::toString)
+          .collect(Collectors.joining(", ", "between " + min + " and " + max + " of (", ")"));
+    }
+  }
+
   record Not(Proposition other) implements Proposition {
     public String toString() {
       return "(not " + other.toString() + ")";
@@ -169,15 +268,13 @@ public sealed interface Proposition {
     }
   }
 
-  record True() implements Proposition {
-    public List<Integer> substituteTerms(List<Proposition> terms) {
-      return List.of();
-    }
-
-    public List<Proposition> terms() {
-      return List.of();
+  record Auxiliary(int id) implements Proposition {
+    public String toString() {
+      return "aux" + id;
     }
+  }
 
+  record True() implements Proposition {
     public String toString() {
       return "true";
     }
@@ -0,0 +1,276 @@
+package com.sadraskol.peg.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hash-conses grounded propositions: structurally equal nodes built through the factory are the
+// same object, so a subformula repeated across a quantifier expansion is stored once and its
+// conjunctive normal form is computed once.
+public class Propositions {
+  private static final Proposition TRUE = new Proposition.True();
+  private static final Proposition FALSE = new Proposition.False();
+
+  private enum Kind {
+    And,
+    Or,
+    Not,
+    Cnf
+  }
+
+  // Operands are canonical, so a node is identified by its kind and the identity of its operands,
+  // and its hash is computed once instead of walking the whole subtree.
+  private record Node(Kind kind, Proposition[] operands, int hash) {
+    static Node of(Kind kind, Proposition... operands) {
+      var hash = kind.hashCode();
+      for (var operand : operands) {
+        hash = 31 * hash + System.identityHashCode(operand);
+      }
+      return new Node(kind, operands, hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Node node) || kind != node.kind) {
+        return false;
+      }
+      if (operands.length != node.operands.length) {
+        return false;
+      }
+      for (var i = 0; i < operands.length; i++) {
+        if (operands[i] != node.operands[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return kind + Arrays.toString(operands);
+    }
+  }
+
+  private final ConcurrentHashMap<Node, Proposition> nodes;
+  private final ConcurrentHashMap<Proposition, Proposition> leaves;
+  private final ConcurrentHashMap<Node, Proposition> normalForms;
+  private final Deadline deadline;
+
+  public Propositions() {
+    this(Deadline.none());
+  }
+
+  public Propositions(Deadline deadline) {
+    this.deadline = deadline;
+    this.nodes = new ConcurrentHashMap<>();
+    this.leaves = new ConcurrentHashMap<>();
+    this.normalForms = new ConcurrentHashMap<>();
+  }
+
+  public Proposition truth() {
+    return TRUE;
+  }
+
+  public Proposition falsity() {
+    return FALSE;
+  }
+
+  public Proposition and(Proposition left, Proposition right) {
+    return conjunction(List.of(left, right));
+  }
+
+  public Proposition or(Proposition left, Proposition right) {
+    return disjunction(List.of(left, right));
+  }
+
+  // Nested conjunctions are spliced in and constants folded away, so the conjunction of an
+  // expansion is one node with an operand per combination, or a constant.
+  public Proposition conjunction(List<Proposition> operands) {
+    var flattened = new ArrayList<Proposition>(operands.size());
+    for (var operand : operands) {
+      switch (operand) {
+        case Proposition.True _ -> {}
+        case Proposition.False _ -> {
+          return FALSE;
+        }
+        case Proposition.Conjunction conjunction -> flattened.addAll(conjunction.operands());
+        default -> flattened.add(operand);
+      }
+    }
+    return node(Kind.And, flattened);
+  }
+
+  public Proposition disjunction(List<Proposition> operands) {
+    var flattened = new ArrayList<Proposition>(operands.size());
+    for (var operand : operands) {
+      switch (operand) {
+        case Proposition.False _ -> {}
+        case Proposition.True _ -> {
+          return TRUE;
+        }
+        case Proposition.Disjunction disjunction -> flattened.addAll(disjunction.operands());
+        default -> flattened.add(operand);
+      }
+    }
+    return node(Kind.Or, flattened);
+  }
+
+  // Operands that grounded to constants are folded into the bounds, and bounds that leave no choice
+  // become plain conjunctions or disjunctions of the remaining literals.
+  public Proposition cardinality(List<Proposition> operands, int min, int max) {
+    var literals = new ArrayList<Proposition>(operands.size());
+    for (var operand : operands) {
+      switch (operand) {
+        case Proposition.True _ -> {
+          min -= 1;
+          max -= 1;
+        }
+        case Proposition.False _ -> {}
+        case Proposition.Binary _, Proposition.Not _ -> literals.add(operand);
+        default -> throw new IllegalStateException("Expected a literal to count, got: " + operand);
+      }
+    }
+    min = Math.max(min, 0);
+    max = Math.min(max, literals.size());
+    if (min > max) {
+      return FALSE;
+    }
+    if (max == 0) {
+      return conjunction(literals.stream().map(Propositions::negation).toList());
+    }
+    if (min == literals.size()) {
+      return conjunction(literals);
+    }
+    if (max == literals.size() && min == 0) {
+      return TRUE;
+    }
+    if (max == literals.size() && min == 1) {
+      return disjunction(literals);
+    }
+    return new Proposition.Cardinality(List.copyOf(literals), min, max);
+  }
+
+  static Proposition negation(Proposition literal) {
+    return switch (literal) {
+      case Proposition.Binary binary -> binary.negate();
+      case Proposition.Not(var other) -> other;
+      default -> new Proposition.Not(literal);
+    };
+  }
+
+  public Proposition not(Proposition other) {
+    return nodes.computeIfAbsent(Node.of(Kind.Not, other), _ -> new Proposition.Not(other));
+  }
+
+  // Values are interned by the evaluator, so comparing leaves mostly stops at identity checks.
+  public Proposition binary(Operator op, Value left, Value right) {
+    var binary = new Proposition.Binary(op, left, right);
+    var canonical = leaves.putIfAbsent(binary, binary);
+    return canonical == null ? binary : canonical;
+  }
+
+  public int size() {
+    return nodes.size() + leaves.size();
+  }
+
+  private Proposition node(Kind kind, List<Proposition> operands) {
+    if (operands.isEmpty()) {
+      return kind == Kind.And ? TRUE : FALSE;
+    }
+    if (operands.size() == 1) {
+      return operands.getFirst();
+    }
+    var array = operands.toArray(Proposition[]::new);
+    return nodes.computeIfAbsent(
+        Node.of(kind, array),
+        _ ->
+            kind == Kind.And
+                ? new Proposition.Conjunction(List.of(array))
+                : new Proposition.Disjunction(List.of(array)));
+  }
+
+  // Same distribution as Proposition#conjunctiveNormalForm, over canonical nodes: the result of
+  // each node is memoized so shared subformulas are only distributed once. The clauses of a
+  // disjunction are the products of the clauses of its disjuncts, built left to right.
+  public Proposition conjunctiveNormalForm(Proposition proposition) {
+    var conjunctive =
+        proposition instanceof Proposition.And || proposition instanceof Proposition.Conjunction;
+    var disjunctive =
+        proposition instanceof Proposition.Or || proposition instanceof Proposition.Disjunction;
+    if (!conjunctive && !disjunctive) {
+      return proposition;
+    }
+    var key = Node.of(Kind.Cnf, proposition);
+    var cached = normalForms.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    Proposition cnf;
+    if (conjunctive) {
+      var clauses = new ArrayList<Proposition>();
+      for (var conjunct : conjuncts(proposition)) {
+        clauses.add(conjunctiveNormalForm(conjunct));
+      }
+      cnf = conjunction(clauses);
+    } else {
+      List<Proposition> clauses = List.of(FALSE);
+      for (var disjunct : disjuncts(proposition)) {
+        var rights = conjuncts(conjunctiveNormalForm(disjunct));
+        var product = new ArrayList<Proposition>();
+        for (var left : clauses) {
+          deadline.check();
+          for (var right : rights) {
+            product.add(disjunction(List.of(left, right)));
+          }
+        }
+        clauses = product;
+      }
+      cnf = conjunction(clauses);
+    }
+    normalForms.putIfAbsent(key, cnf);
+    return cnf;
+  }
+
+  // Operands of a chain of conjunctions, binary or n-ary, from left to right. True has no
+  // conjuncts.
+  static List<Proposition> conjuncts(Proposition proposition) {
+    var conjuncts = new ArrayList<Proposition>();
+    var stack = new ArrayList<Proposition>();
+    stack.add(proposition);
+    while (!stack.isEmpty()) {
+      switch (stack.removeLast()) {
+        case Proposition.And(var left, var right) -> {
+          stack.add(right);
+          stack.add(left);
+        }
+        case Proposition.Conjunction(var operands) -> stack.addAll(operands.reversed());
+        case Proposition.True _ -> {}
+        case Proposition next -> conjuncts.add(next);
+      }
+    }
+    return conjuncts;
+  }
+
+  static List<Proposition> disjuncts(Proposition proposition) {
+    var disjuncts = new ArrayList<Proposition>();
+    var stack = new ArrayList<Proposition>();
+    stack.add(proposition);
+    while (!stack.isEmpty()) {
+      switch (stack.removeLast()) {
+        case Proposition.Or(var left, var right) -> {
+          stack.add(right);
+          stack.add(left);
+        }
+        case Proposition.Disjunction(var operands) -> stack.addAll(operands.reversed());
+        case Proposition next -> disjuncts.add(next);
+      }
+    }
+    return disjuncts;
+  }
+}
@@ -0,0 +1,7 @@
+package com.sadraskol.peg.engine;
+
+import com.sadraskol.peg.parser.Declaration;
+
+// A proposition every model satisfies, with the declaration it was written in: a constraint, or
+// the record of an injective relation.
+public record Requirement(Declaration declaration, String description, Proposition proposition) {}
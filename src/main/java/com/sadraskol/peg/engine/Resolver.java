@@ -0,0 +1,80 @@
+package com.sadraskol.peg.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Replaces every variable bound by a quantifier with the slot the evaluator binds it to: slots are
+// numbered by nesting, the outermost quantifier binding its variables from slot 0.
+public class Resolver {
+  private final List<String> scope;
+
+  public Resolver() {
+    this.scope = new ArrayList<>();
+  }
+
+  public Proposition resolve(Proposition proposition) {
+    switch (proposition) {
+      case Proposition.Forall forall -> {
+        return new Proposition.Forall(
+            forall.args(), forall.set(), resolveBound(forall.args(), forall.predicate()));
+      }
+      case Proposition.Exists exists -> {
+        return new Proposition.Exists(
+            exists.args(), exists.set(), resolveBound(exists.args(), exists.predicate()));
+      }
+      case Proposition.Count count -> {
+        return new Proposition.Count(
+            count.args(),
+            count.set(),
+            resolveBound(count.args(), count.predicate()),
+            count.min(),
+            count.max());
+      }
+      case Proposition.Not not -> {
+        return new Proposition.Not(resolve(not.other()));
+      }
+      case Proposition.Or or -> {
+        return new Proposition.Or(resolve(or.left()), resolve(or.right()));
+      }
+      case Proposition.And and -> {
+        return new Proposition.And(resolve(and.left()), resolve(and.right()));
+      }
+      case Proposition.Binary binary -> {
+        return new Proposition.Binary(binary.op(), resolve(binary.left()), resolve(binary.right()));
+      }
+      default -> {
+        return proposition;
+      }
+    }
+  }
+
+  private Proposition resolveBound(List<Value.Variable> args, Proposition predicate) {
+    for (var arg : args) {
+      scope.add(arg.name());
+    }
+    var resolved = resolve(predicate);
+    scope.subList(scope.size() - args.size(), scope.size()).clear();
+    return resolved;
+  }
+
+  private Value resolve(Value value) {
+    switch (value) {
+      case Value.Variable variable -> {
+        var index = scope.lastIndexOf(variable.name());
+        if (index < 0) {
+          return variable;
+        }
+        return new Value.Slot(index, variable.name());
+      }
+      case Value.Tuple tuple -> {
+        return new Value.Tuple(tuple.values().stream().map(this::resolve).toList());
+      }
+      case Value.Member member -> {
+        return new Value.Member(resolve(member.value()), member.index());
+      }
+      default -> {
+        return value;
+      }
+    }
+  }
+}
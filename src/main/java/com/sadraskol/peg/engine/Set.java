@@ -1,29 +1,51 @@
 package com.sadraskol.peg.engine;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public sealed interface Set {
-  record Literal(List<Value> values) implements Set {}
+  record Literal(List<Value> values) implements Set {
+    public Literal {
+      values = ValueList.of(values);
+    }
+  }
 
   record Universe() implements Set {}
 
-  record Product(
-      Value.Set leftSet,
-      Value.Set rightSet,
-      java.util.Set<Value> including,
-      java.util.Set<Value> excludes)
-      implements Set {
-    public Product(Value.Set leftSet, Value.Set rightSet) {
-      this(leftSet, rightSet, new HashSet<>(), new HashSet<>());
+  record Product(Value.Set leftSet, Value.Set rightSet) implements Set {}
+
+  // Decoded relation between the elements of two sets, iterating its pairs row by row.
+  record Relation(List<Value> left, List<Value> right, BitMatrix cells)
+      implements Set, Iterable<Value.Tuple> {
+    public Relation {
+      left = ValueList.of(left);
+      right = ValueList.of(right);
+    }
+
+    public int size() {
+      return cells.cardinality();
+    }
+
+    public boolean contains(Value leftValue, Value rightValue) {
+      return cells.get(left.indexOf(leftValue), right.indexOf(rightValue));
     }
 
-    public void including(Value value) {
-      including.add(value);
+    @Override
+    public Iterator<Value.Tuple> iterator() {
+      var columns = right.size();
+      return cells()
+          .cells()
+          .mapToObj(
+              cell -> new Value.Tuple(List.of(left.get(cell / columns), right.get(cell % columns))))
+          .iterator();
     }
 
-    public void excluding(Value value) {
-      excludes.add(value);
+    // The pairs as a literal set of tuples, the shape relations were decoded to before.
+    public Literal toLiteral() {
+      var tuples = new ArrayList<Value>(size());
+      forEach(tuples::add);
+      return new Literal(tuples);
     }
   }
 
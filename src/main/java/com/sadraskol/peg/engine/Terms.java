@@ -0,0 +1,42 @@
+package com.sadraskol.peg.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Terms {
+  private final Map<Proposition, Integer> ids;
+  private final List<Proposition> terms;
+
+  public Terms() {
+    this.ids = new HashMap<>();
+    this.terms = new ArrayList<>();
+  }
+
+  public int intern(Proposition term) {
+    var id = ids.get(term);
+    if (id == null) {
+      terms.add(term);
+      id = terms.size();
+      ids.put(term, id);
+    }
+    return id;
+  }
+
+  public int id(Proposition term) {
+    var id = ids.get(term);
+    if (id == null) {
+      throw new IllegalStateException("Could not find term: " + term);
+    }
+    return id;
+  }
+
+  public Proposition get(int id) {
+    return terms.get(id - 1);
+  }
+
+  public int size() {
+    return terms.size();
+  }
+}
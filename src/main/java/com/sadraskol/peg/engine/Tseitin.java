@@ -0,0 +1,70 @@
+package com.sadraskol.peg.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Plaisted-Greenbaum flavour of the Tseitin transformation: evaluated propositions are in negation
+// normal form, so a conjunction nested in a disjunction only needs the implication aux => and.
+// The clauses come out as one n-ary conjunction of n-ary disjunctions, never as binary chains.
+public class Tseitin {
+  private int auxiliaries;
+  private final Deadline deadline;
+
+  public Tseitin() {
+    this(Deadline.none());
+  }
+
+  public Tseitin(Deadline deadline) {
+    this.auxiliaries = 0;
+    this.deadline = deadline;
+  }
+
+  public Proposition conjunctiveNormalForm(Proposition proposition) {
+    var clauses = new ArrayList<Proposition>();
+    for (var conjunct : Propositions.conjuncts(proposition)) {
+      deadline.check();
+      addClause(conjunct, null, clauses);
+    }
+    return switch (clauses.size()) {
+      case 0 -> new Proposition.True();
+      case 1 -> clauses.getFirst();
+      default -> new Proposition.Conjunction(List.copyOf(clauses));
+    };
+  }
+
+  private void addClause(Proposition conjunct, Proposition guard, List<Proposition> clauses) {
+    var literals = new ArrayList<Proposition>();
+    if (guard != null) {
+      literals.add(guard);
+    }
+    for (var disjunct : Propositions.disjuncts(conjunct)) {
+      switch (disjunct) {
+        case Proposition.True _ -> {
+          return;
+        }
+        case Proposition.False _ -> {}
+        case Proposition.And _, Proposition.Conjunction _ -> literals.add(name(disjunct, clauses));
+        default -> literals.add(disjunct);
+      }
+    }
+    clauses.add(
+        switch (literals.size()) {
+          case 0 -> new Proposition.False();
+          case 1 -> literals.getFirst();
+          default -> new Proposition.Disjunction(List.copyOf(literals));
+        });
+  }
+
+  public Proposition.Auxiliary auxiliary() {
+    auxiliaries += 1;
+    return new Proposition.Auxiliary(auxiliaries);
+  }
+
+  private Proposition name(Proposition conjunction, List<Proposition> clauses) {
+    var auxiliary = auxiliary();
+    for (var conjunct : Propositions.conjuncts(conjunction)) {
+      addClause(conjunct, new Proposition.Not(auxiliary), clauses);
+    }
+    return auxiliary;
+  }
+}
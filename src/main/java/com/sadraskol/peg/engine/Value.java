@@ -5,6 +5,10 @@ import java.util.stream.Collectors;
 
 public sealed interface Value {
   record Tuple(List<Value> values) implements Value {
+    public Tuple {
+      values = ValueList.of(values);
+    }
+
     public String toString() {
       return "(" + values.stream().map(Object::toString).collect(Collectors.joining(", ")) + ")";
     }
@@ -28,6 +32,12 @@ public sealed interface Value {
 
   record Variable(String name) implements Value {}
 
+  record Slot(int index, String name) implements Value {
+    public String toString() {
+      return name;
+    }
+  }
+
   record Member(Value value, Integer index) implements Value {
     public String toString() {
       return value.toString() + "[" + index + "]";
@@ -0,0 +1,80 @@
+package com.sadraskol.peg.engine;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// Immutable list of values keeping their insertion order, with a hash index built on the first
+// lookup so that membership tests do not scan the whole list. The hash code is cached, like
+// String's, since tuples of interned values are hashed over and over.
+public final class ValueList extends AbstractList<Value> implements RandomAccess {
+  private final Value[] values;
+  private volatile Map<Value, Integer> index;
+  private int hash;
+
+  private ValueList(Value[] values) {
+    this.values = values;
+  }
+
+  public static ValueList of(List<Value> values) {
+    if (values instanceof ValueList list) {
+      return list;
+    }
+    return new ValueList(values.toArray(new Value[0]));
+  }
+
+  @Override
+  public Value get(int i) {
+    return values[i];
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return index().containsKey(o);
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    return index().getOrDefault(o, -1);
+  }
+
+  @Override
+  public int hashCode() {
+    var hash = this.hash;
+    if (hash == 0) {
+      hash = super.hashCode();
+      this.hash = hash;
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof ValueList other && hashCode() != other.hashCode()) {
+      return false;
+    }
+    return super.equals(o);
+  }
+
+  private Map<Value, Integer> index() {
+    var index = this.index;
+    if (index == null) {
+      index = new HashMap<>(values.length * 2);
+      for (var i = values.length - 1; i >= 0; i--) {
+        index.put(values[i], i);
+      }
+      this.index = index;
+    }
+    return index;
+  }
+}
@@ -10,5 +10,11 @@ public sealed interface Declaration {
 
   record Constraint(Expression expr) implements Declaration {}
 
+  record Soft(int weight, Expression expr) implements Declaration {}
+
+  record Minimize(Expression expr) implements Declaration {}
+
+  record Maximize(Expression expr) implements Declaration {}
+
   record Facts(List<Expression> expressions) implements Declaration {}
 }
@@ -5,19 +5,34 @@ import com.sadraskol.peg.scanner.TokenType;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Parser {
   private final Deque<Token> tokens;
   private final List<Declaration> declarations;
+  // Declarations are records, so equal ones written twice are told apart by identity.
+  private final Map<Declaration, Token> starts;
 
   public Parser(List<Token> tokens) {
     this.tokens = new ArrayDeque<>(tokens);
     this.declarations = new ArrayList<>();
+    this.starts = new IdentityHashMap<>();
+  }
+
+  // Line of the first token of a declaration returned by parse().
+  public int line(Declaration declaration) {
+    var start = starts.get(declaration);
+    if (start == null) {
+      throw new IllegalStateException("Declaration was not parsed: " + declaration);
+    }
+    return start.line();
   }
 
   public List<Declaration> parse() {
     while (!(tokens.getFirst().type() == TokenType.Eof)) {
+      var start = tokens.getFirst();
       if (tokens.getFirst().type() == TokenType.Import) {
         parseImportStatement();
       } else if (tokens.getFirst().type() == TokenType.Record) {
@@ -26,10 +41,17 @@ public class Parser {
         parseConstraintStatement();
       } else if (tokens.getFirst().type() == TokenType.Facts) {
         parseFactsStatement();
+      } else if (tokens.getFirst().type() == TokenType.Soft) {
+        parseSoftStatement();
+      } else if (tokens.getFirst().type() == TokenType.Minimize) {
+        parseMinimizeStatement();
+      } else if (tokens.getFirst().type() == TokenType.Maximize) {
+        parseMaximizeStatement();
       } else {
         throw new IllegalStateException(
             "Unexpected token " + tokens.getFirst() + ", expected a statement");
       }
+      starts.put(declarations.getLast(), start);
     }
     return declarations;
   }
@@ -113,6 +135,36 @@ public class Parser {
     declarations.add(new Declaration.Constraint(expr));
   }
 
+  private void parseSoftStatement() {
+    pop(TokenType.Soft);
+    var weight = 1;
+    if (tokens.peek().type() == TokenType.Number) {
+      weight = Integer.parseInt(tokens.pop().content());
+    }
+
+    declarations.add(new Declaration.Soft(weight, blockExpr()));
+  }
+
+  private void parseMinimizeStatement() {
+    pop(TokenType.Minimize);
+    declarations.add(new Declaration.Minimize(blockExpr()));
+  }
+
+  private void parseMaximizeStatement() {
+    pop(TokenType.Maximize);
+    declarations.add(new Declaration.Maximize(blockExpr()));
+  }
+
+  private Expression blockExpr() {
+    pop(TokenType.LeftBrace);
+
+    var expr = constraintExpr();
+
+    pop(TokenType.RightBrace);
+
+    return expr;
+  }
+
   private void parseFactsStatement() {
     pop(TokenType.Facts);
     pop(TokenType.LeftBrace);
@@ -94,6 +94,9 @@ public class Scanner {
 
   private void skipWhiteSpaces() {
     while (!endOfSource() && Character.isWhitespace(source.charAt(current))) {
+      if (source.charAt(current) == '\n') {
+        line += 1;
+      }
       current += 1;
     }
   }
@@ -135,6 +138,9 @@ public class Scanner {
       case "record" -> addToken(TokenType.Record);
       case "exists" -> addToken(TokenType.Exists);
       case "constraint" -> addToken(TokenType.Constraint);
+      case "soft" -> addToken(TokenType.Soft);
+      case "minimize" -> addToken(TokenType.Minimize);
+      case "maximize" -> addToken(TokenType.Maximize);
       case "forall" -> addToken(TokenType.Forall);
       case "injective" -> addToken(TokenType.Injective);
       case "in" -> addToken(TokenType.In);
@@ -6,6 +6,9 @@ public enum TokenType {
   Import,
   Record,
   Constraint,
+  Soft,
+  Minimize,
+  Maximize,
   Forall,
   In,
   Implies,
@@ -1,10 +1,23 @@
 package com.sadraskol.peg;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.sadraskol.peg.backend.SatBackends;
+import com.sadraskol.peg.engine.CardinalityEncoding;
+import com.sadraskol.peg.engine.Deadline;
+import com.sadraskol.peg.engine.Encoding;
 import com.sadraskol.peg.engine.Set;
 import com.sadraskol.peg.engine.Value;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.Test;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.TimeoutException;
@@ -21,11 +34,485 @@ public class RunnerTest {
     assertEquals(
         new Set.Literal(List.of(new Value.Str("Room A"), new Value.Str("Room B"))),
         model.get("Room"));
+    assertEquals(
+        List.of(
+            new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Str("Damasio"))),
+            new Value.Tuple(List.of(new Value.Str("Room B"), new Value.Str("Gerber")))),
+        TestUtils.tuples(model.get("Room#teacher")));
+  }
+
+  @Test
+  public void decodesRelationsOnDemand() throws ContradictionException, TimeoutException {
+    var model = new Runner(TestUtils.readFile("engine/simple_spec.peg")).run();
+
+    var relation = model.relation("Room#teacher");
+    assertSame(relation, model.get("Room#teacher"));
+    assertTrue(relation.contains(new Value.Str("Room B"), new Value.Str("Gerber")));
+    assertEquals(java.util.Set.of("Teacher", "Room", "Room#teacher"), model.keySet());
+    assertNull(model.get("Lesson"));
+    assertThrows(IllegalStateException.class, () -> model.relation("Room"));
+  }
+
+  @Test
+  public void readsRelationsAsLiteralSets() throws ContradictionException, TimeoutException {
+    var model = new Runner(TestUtils.readFile("engine/simple_spec.peg")).run();
+
     assertEquals(
         new Set.Literal(
             List.of(
-                new Value.Tuple(List.of(new Value.Str("Room B"), new Value.Str("Gerber"))),
-                new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Str("Damasio"))))),
-        model.get("Room#teacher"));
+                new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Str("Damasio"))),
+                new Value.Tuple(List.of(new Value.Str("Room B"), new Value.Str("Gerber"))))),
+        model.literal("Room#teacher"));
+    assertEquals(model.get("Room"), model.literal("Room"));
+    assertThrows(IllegalStateException.class, () -> model.literal("Lesson"));
+  }
+
+  @Test
+  public void worksOnSimpleSpecWithTseitinEncoding()
+      throws ContradictionException, TimeoutException {
+    var model =
+        new Runner(
+                TestUtils.readFile("engine/simple_spec.peg"),
+                Options.defaults().withEncoding(Encoding.Tseitin))
+            .run();
+
+    assertEquals(
+        List.of(
+            new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Str("Damasio"))),
+            new Value.Tuple(List.of(new Value.Str("Room B"), new Value.Str("Gerber")))),
+        TestUtils.tuples(model.get("Room#teacher")));
+  }
+
+  @Test
+  public void groundsConstraintsInParallel() throws ContradictionException, TimeoutException {
+    var source = TestUtils.readFile("engine/simple_spec.peg");
+
+    assertEquals(
+        new Runner(source).run(), new Runner(source, Options.defaults().withParallelism(4)).run());
+  }
+
+  @Test
+  public void reportsMetricsOfEveryPhase() throws ContradictionException, TimeoutException {
+    var metrics = new Metrics();
+    new Runner(TestUtils.readFile("engine/simple_spec.peg")).run(metrics);
+
+    assertEquals(7, metrics.propositions());
+    assertEquals(4, metrics.clauses());
+    assertEquals(8, metrics.literals());
+    assertEquals(4, metrics.terms());
+    assertTrue(metrics.nanos(Metrics.Phase.Solve) > 0);
+    assertTrue(metrics.toMap().containsKey("solver.decisions"));
+  }
+
+  @Test
+  public void timesDecodingWhenRelationsAreRead() throws ContradictionException, TimeoutException {
+    var metrics = new Metrics();
+    var model = new Runner(TestUtils.readFile("engine/simple_spec.peg")).run(metrics);
+    var before = metrics.nanos(Metrics.Phase.Decode);
+
+    model.relation("Room#teacher");
+
+    assertTrue(metrics.nanos(Metrics.Phase.Decode) > before);
+  }
+
+  @Test
+  public void countsAllocationOfWorkerThreads() throws Exception {
+    var metrics = new Metrics();
+    var pool = new ForkJoinPool(2, metrics.workers(), null, false);
+    try {
+      var mark = metrics.start(Metrics.Phase.Ground);
+      pool.submit(() -> new byte[1 << 20]).get();
+      metrics.stop(mark);
+    } finally {
+      pool.shutdown();
+    }
+
+    assertTrue(metrics.bytes(Metrics.Phase.Ground) >= 1 << 20);
+  }
+
+  @Test
+  public void worksWithEveryBackend() throws ContradictionException, TimeoutException {
+    var source = TestUtils.readFile("engine/simple_spec.peg");
+    var expected = new Runner(source).run().get("Room#teacher");
+
+    for (var backend :
+        List.of(SatBackends.cdcl(), SatBackends.sat4j("Glucose21"), SatBackends.portfolio())) {
+      var model = new Runner(source, Options.defaults().withBackend(backend)).run();
+
+      assertEquals(expected, model.get("Room#teacher"));
+    }
+  }
+
+  @Test
+  public void encodesInjectiveRelationsForClausalBackends()
+      throws ContradictionException, TimeoutException {
+    var model =
+        new Runner(
+                injectiveSpec.formatted("\"Monday\", \"Tuesday\", \"Friday\""),
+                Options.defaults().withBackend(SatBackends.cdcl()))
+            .run();
+
+    var slots = TestUtils.tuples(model.get("Lesson#slot"));
+    assertEquals(
+        3,
+        slots.stream().map(tuple -> ((Value.Tuple) tuple).values().getLast()).distinct().count());
+  }
+
+  @Test
+  public void reportsProgressWhenTheDeadlineFires() {
+    var metrics = new Metrics();
+    var runner = new Runner(TestUtils.readFile("engine/simple_spec.peg"));
+
+    var exceeded =
+        assertThrows(
+            DeadlineExceeded.class, () -> runner.run(metrics, Deadline.after(Duration.ZERO)));
+
+    assertEquals(Metrics.Phase.Ground, exceeded.phase());
+    assertEquals(metrics.propositions(), exceeded.progress().get("propositions"));
+    assertTrue(metrics.propositions() > 0);
+  }
+
+  @Test
+  public void solvesWithinTheDeadline() throws ContradictionException, TimeoutException {
+    var source = TestUtils.readFile("engine/simple_spec.peg");
+
+    for (var backend : List.of(SatBackends.sat4j(), SatBackends.cdcl())) {
+      var model =
+          new Runner(source, Options.defaults().withBackend(backend))
+              .run(new Metrics(), Deadline.after(Duration.ofMinutes(1)));
+
+      assertEquals(2, ((Set.Relation) model.get("Room#teacher")).size());
+    }
+  }
+
+  private static final String objectiveSpec =
+      """
+      record Lesson(name: String) {
+          relation slot: Slot
+      }
+      record Slot(day: String) {}
+
+      facts {
+          Slot = { "Monday", "Tuesday" }
+          Lesson = { "Math", "Biology" }
+      }
+
+      constraint {
+          forall l in Lesson:
+              exists s in Slot: l.slot == s
+      }
+
+      %s {
+          forall l in Lesson:
+              forall s in Slot: l.slot == s
+      }
+      """;
+
+  @Test
+  public void optimizesWithEveryBackend() throws ContradictionException, TimeoutException {
+    for (var backend :
+        List.of(SatBackends.sat4j(), SatBackends.pseudoBoolean(), SatBackends.cdcl())) {
+      var options = Options.defaults().withBackend(backend);
+
+      var minimal = new Runner(objectiveSpec.formatted("minimize"), options).run();
+      var maximal = new Runner(objectiveSpec.formatted("maximize"), options).run();
+
+      assertEquals(2, minimal.relation("Lesson#slot").size());
+      assertEquals(4, maximal.relation("Lesson#slot").size());
+    }
+  }
+
+  @Test
+  public void reportsEveryImprovement() throws ContradictionException, TimeoutException {
+    var session = new Runner(objectiveSpec.formatted("minimize")).session();
+    var costs = new ArrayList<Long>();
+
+    var model = session.optimize((_, cost) -> costs.add(cost));
+
+    assertEquals(2L, costs.getLast());
+    assertEquals(costs.stream().sorted(Comparator.reverseOrder()).distinct().toList(), costs);
+    assertEquals(2, model.orElseThrow().relation("Lesson#slot").size());
+  }
+
+  @Test
+  public void prefersHeavierSoftConstraints() throws ContradictionException, TimeoutException {
+    var source =
+        """
+        record Lesson(name: String) {
+            injective relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday" }
+            Lesson = { "Math", "Biology" }
+        }
+
+        soft {
+            forall l in Lesson: l == "Math" implies exists s in Slot: l.slot == s
+        }
+
+        soft 3 {
+            forall l in Lesson: l == "Biology" implies exists s in Slot: l.slot == s
+        }
+        """;
+
+    for (var backend : List.of(SatBackends.pseudoBoolean(), SatBackends.cdcl())) {
+      var model = new Runner(source, Options.defaults().withBackend(backend)).run();
+
+      assertEquals(
+          List.of(new Value.Tuple(List.of(new Value.Str("Biology"), new Value.Str("Monday")))),
+          TestUtils.tuples(model.get("Lesson#slot")));
+    }
+  }
+
+  @Test
+  public void chargesSoftConstraintsThatCannotHold()
+      throws ContradictionException, TimeoutException {
+    var source =
+        """
+        record Lesson(name: String) {
+            injective relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday" }
+            Lesson = { "Math", "Biology" }
+        }
+
+        soft {
+            forall l in Lesson: l == "Math" implies exists s in Slot: l.slot == s
+        }
+
+        soft 3 {
+            forall l in Lesson: l == "Biology" implies exists s in Slot: l.slot == s
+        }
+
+        soft 4 {
+            exists l in Lesson: l == "History"
+        }
+        """;
+    var session = new Runner(source).session();
+    var costs = new ArrayList<Long>();
+
+    var model = session.optimize((_, cost) -> costs.add(cost));
+
+    assertEquals(5L, costs.getLast());
+    assertEquals(
+        List.of(new Value.Tuple(List.of(new Value.Str("Biology"), new Value.Str("Monday")))),
+        TestUtils.tuples(model.orElseThrow().get("Lesson#slot")));
+  }
+
+  @Test
+  public void keepsTheBestModelWhenTheDeadlineFires()
+      throws ContradictionException, TimeoutException {
+    var deadline = Deadline.after(Duration.ofMinutes(1));
+    var session = new Runner(objectiveSpec.formatted("minimize")).session(new Metrics(), deadline);
+    var improvements = new ArrayList<Model>();
+
+    var exceeded =
+        assertThrows(
+            DeadlineExceeded.class,
+            () ->
+                session.optimize(
+                    (model, _) -> {
+                      improvements.add(model);
+                      deadline.cancel();
+                    }));
+
+    assertEquals(List.of(exceeded.best().orElseThrow()), improvements);
+  }
+
+  private static final String injectiveSpec =
+      """
+      record Lesson(name: String) {
+          injective relation slot: Slot
+      }
+      record Slot(day: String) {}
+
+      facts {
+          Slot = { %s }
+          Lesson = { "Math", "Biology", "Spanish" }
+      }
+
+      constraint {
+          forall l in Lesson:
+              exists s in Slot: l.slot == s
+      }
+      """;
+
+  @Test
+  public void enforcesInjectiveRelations() throws ContradictionException, TimeoutException {
+    for (var cardinality : CardinalityEncoding.values()) {
+      var model =
+          new Runner(
+                  injectiveSpec.formatted("\"Monday\", \"Tuesday\", \"Friday\""),
+                  Options.defaults().withCardinality(cardinality))
+              .run();
+
+      var slots = TestUtils.tuples(model.get("Lesson#slot"));
+      assertEquals(3, slots.size());
+      assertEquals(
+          3,
+          slots.stream().map(tuple -> ((Value.Tuple) tuple).values().getLast()).distinct().count());
+    }
+  }
+
+  @Test
+  public void injectiveRelationsNeedEnoughTargets() {
+    for (var cardinality : CardinalityEncoding.values()) {
+      var runner =
+          new Runner(
+              injectiveSpec.formatted("\"Monday\", \"Tuesday\""),
+              Options.defaults().withCardinality(cardinality));
+
+      assertThrows(IllegalStateException.class, runner::run);
+    }
+  }
+
+  @Test
+  public void explainsUnsatisfiableSpecs() {
+    var source =
+        """
+        record Lesson(name: String) {
+            injective relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday", "Tuesday" }
+            Lesson = { "Math", "Biology", "Spanish" }
+        }
+
+        constraint {
+            forall s in Slot:
+                exists l in Lesson: l.slot == s
+        }
+
+        constraint {
+            forall l in Lesson:
+                exists s in Slot: l.slot == s
+        }
+        """;
+
+    for (var backend : List.of(SatBackends.sat4j(), SatBackends.cdcl())) {
+      var runner = new Runner(source, Options.defaults().withBackend(backend));
+
+      var unsatisfiable = assertThrows(Unsatisfiable.class, runner::run);
+
+      assertEquals(
+          List.of(
+              new Unsatisfiable.Conflict("injective relation Lesson#slot", 1),
+              new Unsatisfiable.Conflict("constraint", 16)),
+          unsatisfiable.conflicts());
+    }
+  }
+
+  @Test
+  public void explainsConstraintsGroundingToFalse() {
+    var source =
+        """
+        record Lesson(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday" }
+            Lesson = { "Math" }
+        }
+
+        constraint {
+            forall l in Lesson: l == "History"
+        }
+        """;
+
+    for (var backend : List.of(SatBackends.sat4j(), SatBackends.cdcl())) {
+      var runner = new Runner(source, Options.defaults().withBackend(backend));
+
+      var unsatisfiable = assertThrows(Unsatisfiable.class, runner::run);
+
+      assertEquals(
+          List.of(new Unsatisfiable.Conflict("constraint", 11)), unsatisfiable.conflicts());
+    }
+  }
+
+  @Test
+  public void explainsConflictingUnitConstraints() {
+    var source =
+        """
+        record Lesson(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday" }
+            Lesson = { "Math" }
+        }
+
+        constraint {
+            forall l in Lesson: forall s in Slot: l.slot == s
+        }
+
+        constraint {
+            forall l in Lesson: forall s in Slot: l.slot == s implies l == "History"
+        }
+        """;
+
+    for (var backend : List.of(SatBackends.sat4j(), SatBackends.cdcl())) {
+      var runner = new Runner(source, Options.defaults().withBackend(backend));
+
+      var unsatisfiable = assertThrows(Unsatisfiable.class, runner::run);
+
+      assertEquals(
+          List.of(
+              new Unsatisfiable.Conflict("constraint", 11),
+              new Unsatisfiable.Conflict("constraint", 15)),
+          unsatisfiable.conflicts());
+    }
+  }
+
+  @Test
+  public void releasesThreadsOfContradictorySessions() throws InterruptedException {
+    var source =
+        """
+        record Lesson(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday" }
+            Lesson = { "Math" }
+        }
+
+        constraint {
+            forall l in Lesson: l == "History"
+        }
+        """;
+    var before = Thread.getAllStackTraces().keySet();
+    var runner =
+        new Runner(
+            source,
+            Options.defaults()
+                .withParallelism(2)
+                .withBackend(SatBackends.portfolio(List.of("Default", "Glucose21"))));
+
+    assertThrows(Unsatisfiable.class, runner::run);
+
+    var started =
+        Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> !before.contains(thread))
+            .filter(
+                thread ->
+                    thread.getName().startsWith("portfolio-")
+                        || thread.getName().startsWith("ForkJoinPool-"))
+            .toList();
+    for (var thread : started) {
+      thread.join(1000);
+      assertFalse(thread.isAlive(), thread.getName());
+    }
   }
 }
@@ -0,0 +1,89 @@
+package com.sadraskol.peg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sadraskol.peg.backend.Cdcl;
+import com.sadraskol.peg.engine.Deadline;
+import com.sadraskol.peg.engine.Set;
+import com.sadraskol.peg.engine.Value;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class SessionTest {
+  @Test
+  public void answersWhatIfQueriesWithoutLosingTheSpec()
+      throws ContradictionException, TimeoutException {
+    var session = new Runner(TestUtils.readFile("engine/simple_spec.peg")).session();
+
+    var unavailable =
+        session.propositions(
+            """
+            constraint {
+              forall r in Room: exists t in Teacher: t != "Gerber" and r.teacher == t
+            }
+            constraint {
+              forall t in Teacher: forall r in Room: r.teacher == t
+            }
+            """);
+
+    var damasioOnly = session.solve(List.of(unavailable.getFirst()));
+    assertTrue(damasioOnly.isPresent());
+    assertTrue(
+        ((Set.Relation) damasioOnly.get().get("Room#teacher"))
+            .contains(new Value.Str("Room A"), new Value.Str("Damasio")));
+
+    assertTrue(session.solve().isPresent());
+
+    session.add(unavailable.getLast());
+    var everyone = session.solve();
+    assertTrue(everyone.isPresent());
+    assertEquals(4, ((Set.Relation) everyone.get().get("Room#teacher")).size());
+  }
+
+  @Test
+  public void closedSessionsAreNotInterruptedBySharedDeadlines()
+      throws ContradictionException, TimeoutException {
+    var interruptions = new AtomicInteger();
+    var options =
+        Options.defaults()
+            .withBackend(
+                () ->
+                    new Cdcl() {
+                      @Override
+                      public void interrupt() {
+                        interruptions.incrementAndGet();
+                      }
+                    });
+    var deadline = Deadline.after(Duration.ofMinutes(1));
+    var runner = new Runner(TestUtils.readFile("engine/simple_spec.peg"), options);
+
+    runner.run(new Metrics(), deadline);
+    runner.run(new Metrics(), deadline);
+    deadline.cancel();
+
+    assertEquals(0, interruptions.get());
+  }
+
+  @Test
+  public void enumeratesDistinctModels() throws ContradictionException, TimeoutException {
+    var session = new Runner(TestUtils.readFile("engine/simple_spec.peg")).session();
+
+    // Relations between two rooms and two teachers where everyone has a match.
+    var models = session.models(10);
+    assertEquals(7, models.size());
+    assertEquals(7, models.stream().map(model -> model.get("Room#teacher")).distinct().count());
+
+    try (var stream = session.models()) {
+      assertEquals(2, stream.limit(2).count());
+    }
+    try (var stream = session.models()) {
+      assertEquals(7, stream.count());
+    }
+    assertTrue(session.solve().isPresent());
+  }
+}
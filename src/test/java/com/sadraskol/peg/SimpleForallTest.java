@@ -1,14 +1,21 @@
 package com.sadraskol.peg;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.sadraskol.peg.backend.Evaluator;
+import com.sadraskol.peg.engine.Deadline;
 import com.sadraskol.peg.engine.Engine;
 import com.sadraskol.peg.engine.Proposition;
+import com.sadraskol.peg.engine.Value;
 import com.sadraskol.peg.parser.Parser;
 import com.sadraskol.peg.scanner.Scanner;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 public class SimpleForallTest {
@@ -35,4 +42,116 @@ public class SimpleForallTest {
             new Proposition.True()),
         specs);
   }
+
+  @Test
+  void parallelExpansionGroundsTheSameClauses() {
+    var teachers =
+        IntStream.range(0, 40).mapToObj(i -> "\"T" + i + "\"").collect(Collectors.joining(", "));
+    var source =
+        """
+        record Teacher(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday", "Tuesday" }
+            Teacher = { %s }
+        }
+
+        constraint {
+            forall t1, t2 in Teacher:
+                t1 == t2 or t1.slot == "Monday"
+        }
+        """
+            .formatted(teachers);
+
+    assertEquals(ground(source, new Evaluator()), ground(source, new Evaluator(true)));
+  }
+
+  @Test
+  void parallelExpansionRunsOnTheGivenPool() {
+    var teachers =
+        IntStream.range(0, 40).mapToObj(i -> "\"T" + i + "\"").collect(Collectors.joining(", "));
+    var source =
+        """
+        record Teacher(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday", "Tuesday" }
+            Teacher = { %s }
+        }
+
+        constraint {
+            forall t1, t2 in Teacher:
+                t1 == t2 or t1.slot == "Monday"
+        }
+        """
+            .formatted(teachers);
+    var workers = new AtomicInteger();
+    var pool =
+        new ForkJoinPool(
+            2,
+            p -> {
+              workers.incrementAndGet();
+              return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            },
+            null,
+            false);
+
+    try {
+      assertEquals(
+          ground(source, new Evaluator()), ground(source, new Evaluator(pool, Deadline.none())));
+      assertTrue(workers.get() > 0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void forallOverThreeVariables() {
+    var source =
+        """
+        record Teacher(name: String) {
+            relation slot: Slot
+        }
+        record Slot(day: String) {}
+
+        facts {
+            Slot = { "Monday", "Tuesday" }
+            Teacher = { "A. Turing", "P. Cruz", "C. Darwin" }
+        }
+
+        constraint {
+            forall t1, t2, t3 in Teacher:
+                t1 == t2 or t2 == t3 or t1 == t3 or t1.slot == "Monday"
+        }
+        """;
+
+    var clauses =
+        ground(source, new Evaluator()).stream()
+            .filter(clause -> !(clause instanceof Proposition.True))
+            .toList();
+
+    assertEquals(6, clauses.size());
+    assertEquals(
+        List.of("A. Turing", "A. Turing", "P. Cruz", "P. Cruz", "C. Darwin", "C. Darwin"),
+        clauses.stream()
+            .map(clause -> (Value.Tuple) ((Proposition.Binary) clause).left())
+            .map(tuple -> ((Value.Str) tuple.values().getFirst()).value())
+            .toList());
+  }
+
+  private static List<Proposition> ground(String source, Evaluator evaluator) {
+    var engine = new Engine(new Parser(new Scanner(source).scan()).parse());
+    var clauses = new ArrayList<Proposition>();
+    for (var proposition : engine.propositions()) {
+      var res = evaluator.evaluate(proposition);
+      clauses.addAll(res.conjunctiveNormalForm().splitConjonctiveNormalForm().toList());
+    }
+    return clauses;
+  }
 }
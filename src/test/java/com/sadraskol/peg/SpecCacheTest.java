@@ -0,0 +1,90 @@
+package com.sadraskol.peg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sadraskol.peg.engine.Set;
+import com.sadraskol.peg.engine.Value;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class SpecCacheTest {
+  private static final String spec =
+      """
+      record Room(identity name: String) {
+        injective relation teacher: Teacher
+      }
+      record Teacher(identity name: String) {}
+
+      facts {
+        Room = { %s }
+        Teacher = { "Gerber", "Damasio" }
+      }
+
+      constraint {
+        forall r in Room:
+          exists t in Teacher: r.teacher = t
+      }
+      """;
+
+  @Test
+  public void onlyCompilesFactsOfCachedSpecs() throws ContradictionException, TimeoutException {
+    var cache = new SpecCache(8, 10_000);
+    var options = Options.defaults().withCache(cache);
+
+    var first = new Runner(spec.formatted("\"Room A\", \"Room B\""), options).run();
+    var second = new Runner(spec.formatted("\"Room C\""), options).run();
+
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(2, first.relation("Room#teacher").size());
+    assertEquals(new Set.Literal(List.of(new Value.Str("Room C"))), second.get("Room"));
+    assertEquals(1, second.relation("Room#teacher").size());
+  }
+
+  @Test
+  public void compilesTheSameModelAsWithoutCache() throws ContradictionException, TimeoutException {
+    var source = TestUtils.readFile("engine/simple_spec.peg");
+    var options = Options.defaults().withCache(new SpecCache(8, 10_000));
+
+    new Runner(source, options).run();
+
+    assertEquals(new Runner(source).run(), new Runner(source, options).run());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedSpecs() throws ContradictionException, TimeoutException {
+    var cache = new SpecCache(2, 10_000);
+    var options = Options.defaults().withCache(cache);
+    var sources =
+        List.of(
+            spec.formatted("\"Room A\""),
+            TestUtils.readFile("engine/simple_spec.peg"),
+            spec.replace("injective relation", "relation").formatted("\"Room A\""));
+
+    new Runner(sources.get(0), options).run();
+    new Runner(sources.get(1), options).run();
+    new Runner(sources.get(0), options).run();
+    new Runner(sources.get(2), options).run();
+    new Runner(sources.get(0), options).run();
+    new Runner(sources.get(1), options).run();
+
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.hits());
+    assertEquals(4, cache.misses());
+  }
+
+  @Test
+  public void keepsSpecsWithinTheirTokens() throws ContradictionException, TimeoutException {
+    var cache = new SpecCache(8, 10);
+    var options = Options.defaults().withCache(cache);
+
+    new Runner(spec.formatted("\"Room A\""), options).run();
+    new Runner(spec.formatted("\"Room A\""), options).run();
+
+    assertEquals(0, cache.size());
+    assertEquals(2, cache.misses());
+  }
+}
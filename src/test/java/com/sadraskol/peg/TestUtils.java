@@ -1,8 +1,12 @@
 package com.sadraskol.peg;
 
+import com.sadraskol.peg.engine.Set;
+import com.sadraskol.peg.engine.Value;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TestUtils {
   public static String readFile(String filename) {
@@ -16,6 +20,12 @@ public class TestUtils {
     }
   }
 
+  public static List<Value> tuples(Set relation) {
+    var tuples = new ArrayList<Value>();
+    ((Set.Relation) relation).forEach(tuples::add);
+    return tuples;
+  }
+
   private static URL getUrl(String name) {
     URL resource = TestUtils.class.getClassLoader().getResource(name);
     if (resource == null) {
@@ -0,0 +1,82 @@
+package com.sadraskol.peg.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class CdclTest {
+  @Test
+  public void agreesWithSat4jOnRandomFormulas() throws ContradictionException, TimeoutException {
+    var random = new Random(42);
+    for (var round = 0; round < 200; round++) {
+      var variables = 5 + random.nextInt(20);
+      var clauses = new ArrayList<int[]>();
+      for (var i = 0; i < variables * 4.3; i++) {
+        var clause = new int[3];
+        for (var j = 0; j < 3; j++) {
+          clause[j] = (1 + random.nextInt(variables)) * (random.nextBoolean() ? 1 : -1);
+        }
+        clauses.add(clause);
+      }
+
+      var cdcl = new Cdcl();
+      var sat4j = SatBackends.sat4j().get();
+      cdcl.newVariables(variables);
+      sat4j.newVariables(variables);
+      var contradiction = false;
+      for (var clause : clauses) {
+        cdcl.addClause(clause);
+        try {
+          sat4j.addClause(clause);
+        } catch (ContradictionException e) {
+          contradiction = true;
+        }
+      }
+
+      var satisfiable = cdcl.isSatisfiable(new int[0]);
+      assertEquals(!contradiction && sat4j.isSatisfiable(new int[0]), satisfiable);
+      if (satisfiable) {
+        assertSatisfies(clauses, cdcl.model());
+      }
+    }
+  }
+
+  @Test
+  public void solvesUnderAssumptions() throws ContradictionException, TimeoutException {
+    var cdcl = new Cdcl();
+    cdcl.addClause(new int[] {1, 2});
+    cdcl.addClause(new int[] {-1, 3});
+    cdcl.addClause(new int[] {-2, 3});
+
+    assertFalse(cdcl.isSatisfiable(new int[] {-3, 1}));
+    assertTrue(cdcl.isSatisfiable(new int[] {-1}));
+    assertEquals(List.of(-1, 2, 3), Arrays.stream(cdcl.model()).boxed().toList());
+    assertFalse(cdcl.isSatisfiable(new int[] {-3}));
+    assertTrue(cdcl.isSatisfiable(new int[0]));
+  }
+
+  @Test
+  public void rejectsEmptyClauses() throws TimeoutException {
+    var cdcl = new Cdcl();
+
+    assertThrows(ContradictionException.class, () -> cdcl.addClause(new int[0]));
+    assertFalse(cdcl.isSatisfiable(new int[0]));
+  }
+
+  private static void assertSatisfies(List<int[]> clauses, int[] model) {
+    for (var clause : clauses) {
+      assertTrue(
+          Arrays.stream(clause).anyMatch(literal -> model[Math.abs(literal) - 1] == literal),
+          Arrays.toString(clause));
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.sadraskol.peg.backend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class DimacsBackendTest {
+  @Test
+  public void writesClausesAndAssumptions() throws ContradictionException, IOException {
+    var backend = new DimacsBackend(List.of());
+    backend.addClause(new int[] {1, -2});
+    backend.addClause(new int[] {2, 3});
+    var writer = new StringWriter();
+
+    backend.write(writer, new int[] {-3});
+
+    assertEquals("p cnf 3 3\n1 -2 0\n2 3 0\n-3 0\n", writer.toString());
+  }
+
+  @Test
+  public void readsTheModelOfTheSolver() throws ContradictionException, TimeoutException {
+    var backend =
+        new DimacsBackend(
+            List.of("sh", "-c", "echo 'c fake'; echo 's SATISFIABLE'; echo 'v 1 -2 0'", "solver"));
+    backend.addClause(new int[] {1, -2, 3});
+
+    assertTrue(backend.isSatisfiable(new int[0]));
+    assertArrayEquals(new int[] {1, -2, -3}, backend.model());
+  }
+
+  @Test
+  public void readsUnsatisfiability() throws ContradictionException, TimeoutException {
+    var backend = new DimacsBackend(List.of("sh", "-c", "echo 's UNSATISFIABLE'", "solver"));
+    backend.addClause(new int[] {1});
+
+    assertFalse(backend.isSatisfiable(new int[] {-1}));
+  }
+}
@@ -0,0 +1,110 @@
+package com.sadraskol.peg.backend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+public class PortfolioTest {
+  // Searches until it is interrupted.
+  private static class Stuck implements SatBackend {
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final java.util.Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private int variables = 0;
+
+    @Override
+    public int variables() {
+      return variables;
+    }
+
+    @Override
+    public void newVariables(int count) {
+      variables = Math.max(variables, count);
+    }
+
+    @Override
+    public void addClause(int[] literals) {}
+
+    @Override
+    public boolean isSatisfiable(int[] assumptions) throws TimeoutException {
+      threads.add(Thread.currentThread());
+      try {
+        interrupted.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new TimeoutException("Interrupted");
+    }
+
+    @Override
+    public void interrupt() {
+      interrupted.countDown();
+    }
+
+    @Override
+    public int[] model() {
+      throw new IllegalStateException("No model");
+    }
+  }
+
+  @Test
+  public void answersWithTheFirstBackendAndInterruptsTheOthers()
+      throws ContradictionException, TimeoutException {
+    var stuck = new Stuck();
+    var portfolio = new Portfolio(List.of(stuck, new Cdcl()));
+    portfolio.addClause(new int[] {1, 2});
+    portfolio.addClause(new int[] {-1});
+
+    assertTrue(portfolio.isSatisfiable(new int[0]));
+    assertArrayEquals(new int[] {-1, 2}, portfolio.model());
+    assertEquals(1, portfolio.statistics().get("winner"));
+    assertEquals(0, stuck.interrupted.getCount());
+  }
+
+  @Test
+  public void reusesItsThreadsUntilClosed()
+      throws ContradictionException, TimeoutException, InterruptedException {
+    var stuck = new Stuck();
+    var portfolio = new Portfolio(List.of(stuck, new Cdcl()));
+    portfolio.addClause(new int[] {1, 2});
+
+    for (var i = 0; i < 5; i++) {
+      assertTrue(portfolio.isSatisfiable(new int[0]));
+    }
+    portfolio.close();
+
+    assertTrue(stuck.threads.size() <= 2);
+    for (var thread : stuck.threads) {
+      thread.join(1000);
+      assertFalse(thread.isAlive());
+    }
+  }
+
+  @Test
+  public void racesSat4jConfigurations() throws ContradictionException, TimeoutException {
+    var portfolio = SatBackends.portfolio(List.of("Default", "Glucose21", "Light")).get();
+    portfolio.addClause(new int[] {1, 2});
+    portfolio.addClause(new int[] {-1, 2});
+    portfolio.addAtMost(new int[] {1, 2, 3}, 1);
+
+    assertTrue(portfolio.isSatisfiable(new int[0]));
+    assertArrayEquals(new int[] {-1, 2, -3}, portfolio.model());
+    assertFalse(portfolio.isSatisfiable(new int[] {3}));
+  }
+
+  @Test
+  public void failsWhenEveryBackendGivesUp() {
+    var portfolio = new Portfolio(List.of(new Stuck(), new Stuck()));
+    portfolio.interrupt();
+
+    assertThrows(TimeoutException.class, () -> portfolio.isSatisfiable(new int[0]));
+  }
+}
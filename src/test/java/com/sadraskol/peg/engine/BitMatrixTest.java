@@ -0,0 +1,91 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BitMatrixTest {
+  private static BitSet cells(int... cells) {
+    var bits = new BitSet();
+    for (var cell : cells) {
+      bits.set(cell);
+    }
+    return bits;
+  }
+
+  @Test
+  void keepsSparseMatricesAsCellNumbers() {
+    var sparse = BitMatrix.of(100, 100, cells(3, 250, 9999));
+    var dense = BitMatrix.of(2, 3, cells(0, 4));
+
+    assertTrue(sparse.isSparse());
+    assertFalse(dense.isSparse());
+    assertTrue(sparse.get(2, 50));
+    assertFalse(sparse.get(2, 51));
+    assertTrue(sparse.get(99, 99));
+    assertTrue(dense.get(1, 1));
+    assertFalse(dense.get(1, 2));
+    assertFalse(dense.get(2, 0));
+    assertEquals(List.of(3, 250, 9999), sparse.cells().boxed().toList());
+  }
+
+  @Test
+  void comparesDimensionsAndCells() {
+    var cells = new BitSet();
+    cells.set(0, 60);
+
+    assertEquals(BitMatrix.of(40, 40, cells), BitMatrix.of(40, 40, cells));
+    assertEquals(BitMatrix.of(40, 40, cells).hashCode(), BitMatrix.of(40, 40, cells).hashCode());
+    assertEquals(BitMatrix.of(40, 40, cells(7)), BitMatrix.of(40, 40, cells(7)));
+    assertFalse(BitMatrix.of(40, 40, cells).equals(BitMatrix.of(20, 80, cells)));
+    assertFalse(BitMatrix.of(40, 40, cells(7)).equals(BitMatrix.of(40, 40, cells(8))));
+  }
+
+  @Test
+  void rejectsCellsOutOfTheMatrix() {
+    assertThrows(IllegalStateException.class, () -> BitMatrix.of(2, 2, cells(4)));
+  }
+
+  @Test
+  void relationsIterateTheirPairsRowByRow() {
+    var rooms = List.<Value>of(new Value.Str("A"), new Value.Str("B"));
+    var teachers = List.<Value>of(new Value.Str("Jane"), new Value.Str("John"));
+    var relation = new Set.Relation(rooms, teachers, BitMatrix.of(2, 2, cells(1, 2)));
+
+    var tuples = new ArrayList<Value>();
+    relation.forEach(tuples::add);
+
+    assertEquals(
+        List.of(
+            new Value.Tuple(List.of(new Value.Str("A"), new Value.Str("John"))),
+            new Value.Tuple(List.of(new Value.Str("B"), new Value.Str("Jane")))),
+        tuples);
+    assertTrue(relation.contains(new Value.Str("B"), new Value.Str("Jane")));
+    assertFalse(relation.contains(new Value.Str("C"), new Value.Str("Jane")));
+    assertEquals(2, relation.size());
+  }
+
+  @Test
+  void relationsConvertToLiteralSetsOfTuples() {
+    var rooms = List.<Value>of(new Value.Str("A"), new Value.Str("B"));
+    var teachers = List.<Value>of(new Value.Str("Jane"));
+    var relation = new Set.Relation(rooms, teachers, BitMatrix.of(2, 1, cells(1)));
+
+    var literal = relation.toLiteral();
+
+    assertEquals(
+        new Set.Literal(
+            List.of(new Value.Tuple(List.of(new Value.Str("B"), new Value.Str("Jane"))))),
+        literal);
+    assertTrue(
+        literal
+            .values()
+            .contains(new Value.Tuple(List.of(new Value.Str("B"), new Value.Str("Jane")))));
+  }
+}
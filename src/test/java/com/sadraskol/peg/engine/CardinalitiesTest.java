@@ -0,0 +1,65 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class CardinalitiesTest {
+  private static final Value.Set slots = new Value.Set(new Set.Named("Lesson#slot"));
+
+  @Test
+  void sequentialCounterAcceptsExactlyTheAssignmentsWithinBounds() {
+    assertEncodes(Cardinalities::sequentialCounter, 4, 1, 2);
+  }
+
+  @Test
+  void commanderAcceptsExactlyTheAssignmentsWithinBounds() {
+    assertEncodes(Cardinalities::commander, 7, 0, 1);
+    assertEncodes(Cardinalities::commander, 5, 1, 1);
+  }
+
+  // The encoding is satisfiable for an assignment of the literals exactly when the count of true
+  // literals is within bounds.
+  private static void assertEncodes(
+      BiFunction<Proposition.Cardinality, Supplier<Proposition>, List<Proposition>> encoding,
+      int size,
+      int min,
+      int max) {
+    var literals = new ArrayList<Proposition>();
+    for (var index = 0; index < size; index++) {
+      literals.add(new Proposition.Binary(Operator.In, new Value.Number(index), slots));
+    }
+    var auxiliaries = new Tseitin();
+    var clauses =
+        encoding.apply(new Proposition.Cardinality(literals, min, max), auxiliaries::auxiliary);
+    var count = auxiliaries.auxiliary().id() - 1;
+
+    for (var assignment = 0; assignment < 1 << size; assignment++) {
+      var values = new HashMap<Proposition, Boolean>();
+      for (var index = 0; index < size; index++) {
+        values.put(literals.get(index), (assignment & 1 << index) != 0);
+      }
+      var satisfiable = false;
+      for (var auxiliary = 0; auxiliary < 1 << count && !satisfiable; auxiliary++) {
+        for (var id = 1; id <= count; id++) {
+          values.put(new Proposition.Auxiliary(id), (auxiliary & 1 << (id - 1)) != 0);
+        }
+        satisfiable = clauses.stream().allMatch(clause -> holds(clause, values));
+      }
+      var bits = Integer.bitCount(assignment);
+      assertEquals(bits >= min && bits <= max, satisfiable, "assignment " + assignment);
+    }
+  }
+
+  private static boolean holds(Proposition clause, Map<Proposition, Boolean> values) {
+    var holds = new boolean[] {false};
+    clause.literals((term, negated) -> holds[0] |= values.get(term) != negated);
+    return holds[0];
+  }
+}
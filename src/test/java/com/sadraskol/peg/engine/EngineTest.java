@@ -26,6 +26,17 @@ public class EngineTest {
     Assertions.assertEquals(expectedPropositions, engine.propositions());
   }
 
+  @Test
+  void requirementsDoNotDependOnPropositionsFirst() {
+    var declarations =
+        new Parser(new Scanner(TestUtils.readFile("class_attribution.peg")).scan()).parse();
+    var fresh = new Engine(declarations);
+    var used = new Engine(declarations);
+    used.propositions();
+
+    Assertions.assertEquals(used.requirements(), fresh.requirements());
+  }
+
   @Test
   void allStatementsAreIncludedInTheTests() {
     var testStatements =
@@ -202,7 +213,35 @@ public class EngineTest {
                                 new Proposition.Binary(
                                     Operator.Different,
                                     new Value.Member(new Value.Variable("l1"), 2),
-                                    new Value.Member(new Value.Variable("l2"), 2)))))))),
+                                    new Value.Member(new Value.Variable("l2"), 2)))))),
+                new Proposition.Forall(
+                    List.of(new Value.Variable("_target")),
+                    new Value.Set(new Set.Named("Slot")),
+                    new Proposition.Count(
+                        List.of(new Value.Variable("_source")),
+                        new Value.Set(new Set.Named("Lesson")),
+                        new Proposition.Binary(
+                            Operator.In,
+                            new Value.Tuple(
+                                List.of(
+                                    new Value.Variable("_source"), new Value.Variable("_target"))),
+                            new Value.Set(new Set.Named("Lesson#slot"))),
+                        0,
+                        1)),
+                new Proposition.Forall(
+                    List.of(new Value.Variable("_target")),
+                    new Value.Set(new Set.Named("Room")),
+                    new Proposition.Count(
+                        List.of(new Value.Variable("_source")),
+                        new Value.Set(new Set.Named("Lesson")),
+                        new Proposition.Binary(
+                            Operator.In,
+                            new Value.Tuple(
+                                List.of(
+                                    new Value.Variable("_source"), new Value.Variable("_target"))),
+                            new Value.Set(new Set.Named("Lesson#room"))),
+                        0,
+                        1)))),
         new EngineTestCase(
             "engine/simple_spec.peg",
             List.of(
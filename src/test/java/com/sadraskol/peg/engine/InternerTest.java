@@ -0,0 +1,23 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class InternerTest {
+  @Test
+  void equalValuesShareTheirCanonicalInstance() {
+    var interner = new Interner();
+
+    var room = interner.intern(new Value.Str("Room A"));
+    var tuple =
+        interner.intern(new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Number(1))));
+
+    assertSame(room, interner.intern(new Value.Str("Room A")));
+    assertSame(
+        tuple,
+        interner.intern(new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Number(1)))));
+    assertSame(room, ((Value.Tuple) tuple).values().getFirst());
+  }
+}
@@ -90,4 +90,72 @@ public class PropositionTest {
               .toList());
     }
   }
+
+  @Nested
+  class SubstituteTerms {
+    @Test
+    void substituteNegatedMembershipWithTheOppositeLiteral() {
+      var relation = new Value.Set(new Set.Named("Room#teacher"));
+      var tuple = new Value.Tuple(List.of(new Value.Str("Room A"), new Value.Str("Gerber")));
+      var in = new Proposition.Binary(Operator.In, tuple, relation);
+      var notIn = new Proposition.Binary(Operator.NotIn, tuple, relation);
+      var other =
+          new Proposition.Binary(
+              Operator.In,
+              new Value.Tuple(List.of(new Value.Str("Room B"), new Value.Str("Gerber"))),
+              relation);
+
+      var terms = new Terms();
+      for (var term : new Proposition.Or(new Proposition.Or(notIn, other), in).terms()) {
+        terms.intern(term);
+      }
+
+      assertEquals(2, terms.size());
+      assertEquals(in, terms.get(1));
+      assertEquals(
+          List.of(-1, 2, 1),
+          new Proposition.Or(new Proposition.Or(notIn, other), in).substituteTerms(terms));
+    }
+  }
+
+  @Nested
+  class DeepPropositions {
+    private static final int depth = 100_000;
+
+    private static Proposition.Binary member(int index) {
+      return new Proposition.Binary(
+          Operator.In, new Value.Number(index), new Value.Set(new Set.Named("Room")));
+    }
+
+    @Test
+    void collectsTheTermsOfADeepDisjunction() {
+      Proposition clause = new Proposition.Not(member(0));
+      for (var index = 1; index < depth; index++) {
+        clause = new Proposition.Or(clause, member(index));
+      }
+
+      var terms = new Terms();
+      for (var term : clause.terms()) {
+        terms.intern(term);
+      }
+      var literals = clause.substituteTerms(terms);
+
+      assertEquals(depth, terms.size());
+      assertEquals(-1, literals.getFirst());
+      assertEquals(depth, literals.getLast());
+    }
+
+    @Test
+    void splitsADeepConjunction() {
+      Proposition conjunction = member(0);
+      for (var index = 1; index < depth; index++) {
+        conjunction = new Proposition.And(conjunction, member(index));
+      }
+
+      var clauses = conjunction.splitConjonctiveNormalForm().toList();
+
+      assertEquals(depth, clauses.size());
+      assertEquals(member(0), clauses.getFirst());
+    }
+  }
 }
@@ -0,0 +1,115 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PropositionsTest {
+  private static final Value.Set teacher = new Value.Set(new Set.Named("Room#teacher"));
+
+  private static Value tuple(String room, String teacher) {
+    return new Value.Tuple(List.of(new Value.Str(room), new Value.Str(teacher)));
+  }
+
+  @Test
+  void equalNodesAreTheSameInstance() {
+    var propositions = new Propositions();
+
+    var a = propositions.binary(Operator.In, tuple("A", "Jane"), teacher);
+    var b = propositions.binary(Operator.In, tuple("B", "Jane"), teacher);
+
+    assertSame(a, propositions.binary(Operator.In, tuple("A", "Jane"), teacher));
+    assertSame(propositions.or(a, b), propositions.or(a, b));
+    assertSame(propositions.not(a), propositions.not(a));
+    assertNotSame(propositions.and(a, b), propositions.or(a, b));
+    assertEquals(5, propositions.size());
+  }
+
+  @Test
+  void conjunctiveNormalFormMatchesTheDistribution() {
+    var propositions = new Propositions();
+    var a = propositions.binary(Operator.In, tuple("A", "Jane"), teacher);
+    var b = propositions.binary(Operator.In, tuple("B", "Jane"), teacher);
+    var c = propositions.binary(Operator.In, tuple("C", "Jane"), teacher);
+
+    var proposition =
+        propositions.or(propositions.and(a, propositions.truth()), propositions.and(b, c));
+
+    var cnf = propositions.conjunctiveNormalForm(proposition);
+
+    assertEquals(proposition.conjunctiveNormalForm(), cnf);
+    assertSame(cnf, propositions.conjunctiveNormalForm(proposition));
+    assertSame(propositions.and(propositions.or(a, b), propositions.or(a, c)), cnf);
+  }
+
+  @Test
+  void conjunctiveNormalFormOfADeepChain() {
+    var propositions = new Propositions();
+    Proposition chain = new Proposition.True();
+    for (var index = 0; index < 100_000; index++) {
+      var room = propositions.binary(Operator.In, new Value.Number(index), teacher);
+      chain = new Proposition.And(chain, new Proposition.Or(room, new Proposition.False()));
+    }
+
+    var cnf = propositions.conjunctiveNormalForm(chain);
+
+    assertEquals(100_000, ((Proposition.Conjunction) cnf).operands().size());
+  }
+
+  @Test
+  void flattensAndFoldsConnectives() {
+    var propositions = new Propositions();
+    var a = propositions.binary(Operator.In, tuple("A", "Jane"), teacher);
+    var b = propositions.binary(Operator.In, tuple("B", "Jane"), teacher);
+    var c = propositions.binary(Operator.In, tuple("C", "Jane"), teacher);
+
+    assertEquals(
+        new Proposition.Conjunction(List.of(a, b, c)),
+        propositions.conjunction(List.of(a, propositions.truth(), propositions.and(b, c))));
+    assertSame(
+        propositions.falsity(), propositions.conjunction(List.of(a, propositions.falsity())));
+    assertSame(propositions.truth(), propositions.disjunction(List.of(a, propositions.truth())));
+    assertSame(a, propositions.disjunction(List.of(propositions.falsity(), a)));
+    assertSame(propositions.truth(), propositions.conjunction(List.of()));
+  }
+
+  @Test
+  void foldsCardinalityBounds() {
+    var propositions = new Propositions();
+    var a = propositions.binary(Operator.In, tuple("A", "Jane"), teacher);
+    var b = propositions.binary(Operator.In, tuple("B", "Jane"), teacher);
+    var c = propositions.binary(Operator.In, tuple("C", "Jane"), teacher);
+
+    assertEquals(
+        new Proposition.Cardinality(List.of(a, b, c), 0, 1),
+        propositions.cardinality(List.of(a, propositions.falsity(), b, c), 0, 1));
+    assertEquals(
+        new Proposition.Conjunction(
+            List.of(
+                new Proposition.Binary(Operator.NotIn, tuple("A", "Jane"), teacher),
+                new Proposition.Binary(Operator.NotIn, tuple("B", "Jane"), teacher))),
+        propositions.cardinality(List.of(a, propositions.truth(), b), 0, 1));
+    assertSame(propositions.falsity(), propositions.cardinality(List.of(a), 2, 3));
+    assertSame(propositions.truth(), propositions.cardinality(List.of(a, b), 0, 2));
+    assertEquals(
+        new Proposition.Disjunction(List.of(a, b)), propositions.cardinality(List.of(a, b), 1, 2));
+  }
+
+  @Test
+  void conjunctiveNormalFormStopsOnceTheDeadlineFires() {
+    var deadline = Deadline.none();
+    var propositions = new Propositions(deadline);
+    var a = propositions.binary(Operator.In, tuple("A", "Jane"), teacher);
+    var b = propositions.binary(Operator.In, tuple("B", "Jane"), teacher);
+    var c = propositions.binary(Operator.In, tuple("C", "Jane"), teacher);
+    deadline.cancel();
+
+    assertThrows(
+        Deadline.Exceeded.class,
+        () -> propositions.conjunctiveNormalForm(propositions.or(a, propositions.and(b, c))));
+  }
+}
@@ -0,0 +1,40 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ResolverTest {
+  @Test
+  void numberSlotsByNestingOfQuantifiers() {
+    var teacher = new Value.Set(new Set.Named("Teacher"));
+    var room = new Value.Set(new Set.Named("Room"));
+    var relation = new Value.Set(new Set.Named("Room#teacher"));
+
+    var proposition =
+        new Proposition.Forall(
+            List.of(new Value.Variable("t")),
+            teacher,
+            new Proposition.Exists(
+                List.of(new Value.Variable("r"), new Value.Variable("t")),
+                room,
+                new Proposition.Binary(
+                    Operator.In,
+                    new Value.Tuple(List.of(new Value.Variable("r"), new Value.Variable("t"))),
+                    relation)));
+
+    assertEquals(
+        new Proposition.Forall(
+            List.of(new Value.Variable("t")),
+            teacher,
+            new Proposition.Exists(
+                List.of(new Value.Variable("r"), new Value.Variable("t")),
+                room,
+                new Proposition.Binary(
+                    Operator.In,
+                    new Value.Tuple(List.of(new Value.Slot(1, "r"), new Value.Slot(2, "t"))),
+                    relation))),
+        new Resolver().resolve(proposition));
+  }
+}
@@ -0,0 +1,64 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TseitinTest {
+  private final Proposition x =
+      new Proposition.Binary(Operator.Equal, new Value.Str("x"), new Value.Str("x"));
+  private final Proposition y =
+      new Proposition.Binary(Operator.Equal, new Value.Str("y"), new Value.Str("y"));
+  private final Proposition z =
+      new Proposition.Binary(Operator.Equal, new Value.Str("z"), new Value.Str("z"));
+
+  @Test
+  void keepsClausesOfConjunctiveNormalForm() {
+    var cnf = new Proposition.And(new Proposition.Or(x, z), new Proposition.Or(y, z));
+
+    assertEquals(
+        new Proposition.Conjunction(
+            List.of(
+                new Proposition.Disjunction(List.of(x, z)),
+                new Proposition.Disjunction(List.of(y, z)))),
+        new Tseitin().conjunctiveNormalForm(cnf));
+  }
+
+  // (x /\ y) \/ z <=> (not aux1 \/ x) /\ (not aux1 \/ y) /\ (aux1 \/ z)
+  @Test
+  void namesConjunctionsNestedInDisjunctions() {
+    var aux = new Proposition.Auxiliary(1);
+
+    assertEquals(
+        new Proposition.Conjunction(
+            List.of(
+                new Proposition.Disjunction(List.of(new Proposition.Not(aux), x)),
+                new Proposition.Disjunction(List.of(new Proposition.Not(aux), y)),
+                new Proposition.Disjunction(List.of(aux, z)))),
+        new Tseitin().conjunctiveNormalForm(new Proposition.Or(new Proposition.And(x, y), z)));
+  }
+
+  @Test
+  void buildsOneNodePerConnective() {
+    Proposition chain = x;
+    for (var i = 0; i < 10_000; i++) {
+      chain = new Proposition.And(chain, new Proposition.Or(y, z));
+    }
+
+    var cnf = (Proposition.Conjunction) new Tseitin().conjunctiveNormalForm(chain);
+
+    assertEquals(10_001, cnf.operands().size());
+  }
+
+  @Test
+  void foldsConstants() {
+    assertEquals(
+        x,
+        new Tseitin()
+            .conjunctiveNormalForm(
+                new Proposition.And(
+                    new Proposition.Or(new Proposition.False(), x),
+                    new Proposition.Or(y, new Proposition.True()))));
+  }
+}
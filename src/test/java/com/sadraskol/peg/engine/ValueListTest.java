@@ -0,0 +1,32 @@
+package com.sadraskol.peg.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ValueListTest {
+  private final Value roomA = new Value.Str("Room A");
+  private final Value roomB = new Value.Str("Room B");
+  private final Value roomC = new Value.Str("Room C");
+
+  @Test
+  void keepsInsertionOrderAndDuplicates() {
+    var values = ValueList.of(List.of(roomB, roomA, roomB));
+
+    assertEquals(List.of(roomB, roomA, roomB), values);
+    assertEquals(0, values.indexOf(roomB));
+    assertEquals(1, values.indexOf(roomA));
+  }
+
+  @Test
+  void looksUpMembersByHash() {
+    var values = new Set.Literal(List.of(roomA, roomB)).values();
+
+    assertTrue(values.contains(new Value.Str("Room B")));
+    assertFalse(values.contains(roomC));
+    assertEquals(-1, values.indexOf(roomC));
+  }
+}
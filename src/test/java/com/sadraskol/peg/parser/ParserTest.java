@@ -43,6 +43,15 @@ public class ParserTest {
     Assertions.assertEquals(implementedTokens, testStatements);
   }
 
+  @Test
+  void locatesDeclarations() {
+    var parser = new Parser(new Scanner(TestUtils.readFile("scanner/objectives.peg")).scan());
+
+    var lines = parser.parse().stream().map(parser::line).toList();
+
+    Assertions.assertEquals(List.of(1, 4, 5), lines);
+  }
+
   private static Stream<Arguments> parserTestCases() {
     return getArgumentsStream().map(ParserTestCase::toPair);
   }
@@ -118,6 +127,34 @@ public class ParserTest {
             List.of(
                 new Declaration.Constraint(
                     new Expression.Exists(
+                        new Expression.Tuple(List.of(new Expression.Variable("l"))),
+                        new Expression.Symbol("Lesson"),
+                        new Expression.Equal(
+                            new Expression.Member(
+                                new Expression.Variable("l"), new Expression.Variable("room")),
+                            new Expression.String("Room A")))))),
+        new ParserTestCase(
+            "scanner/objectives.peg",
+            List.of(
+                new Declaration.Soft(
+                    3,
+                    new Expression.Exists(
+                        new Expression.Tuple(List.of(new Expression.Variable("l"))),
+                        new Expression.Symbol("Lesson"),
+                        new Expression.Equal(
+                            new Expression.Member(
+                                new Expression.Variable("l"), new Expression.Variable("room")),
+                            new Expression.String("Room A")))),
+                new Declaration.Minimize(
+                    new Expression.Forall(
+                        new Expression.Tuple(List.of(new Expression.Variable("l"))),
+                        new Expression.Symbol("Lesson"),
+                        new Expression.Equal(
+                            new Expression.Member(
+                                new Expression.Variable("l"), new Expression.Variable("room")),
+                            new Expression.String("Room B")))),
+                new Declaration.Maximize(
+                    new Expression.Forall(
                         new Expression.Tuple(List.of(new Expression.Variable("l"))),
                         new Expression.Symbol("Lesson"),
                         new Expression.Equal(
@@ -55,7 +55,7 @@ public class ScannerTest {
                 new Token(11, 1, "peg", TokenType.Identifier),
                 new Token(14, 1, ".", TokenType.Dot),
                 new Token(15, 1, "String", TokenType.Symbol),
-                new Token(22, 1, "", TokenType.Eof))),
+                new Token(22, 2, "", TokenType.Eof))),
         new ScannerTestCase(
             "scanner/records.peg",
             List.of(
@@ -68,98 +68,142 @@ public class ScannerTest {
                 new Token(32, 1, "Subject", TokenType.Symbol),
                 new Token(39, 1, ")", TokenType.RightParen),
                 new Token(41, 1, "{", TokenType.LeftBrace),
-                new Token(47, 1, "injective", TokenType.Injective),
-                new Token(57, 1, "relation", TokenType.Relation),
-                new Token(66, 1, "slot", TokenType.Identifier),
-                new Token(70, 1, ":", TokenType.Colon),
-                new Token(72, 1, "Slot", TokenType.Symbol),
-                new Token(81, 1, "relation", TokenType.Relation),
-                new Token(90, 1, "room", TokenType.Identifier),
-                new Token(94, 1, ":", TokenType.Colon),
-                new Token(96, 1, "Room", TokenType.Symbol),
-                new Token(101, 1, "}", TokenType.RightBrace),
-                new Token(102, 1, "", TokenType.Eof))),
+                new Token(47, 2, "injective", TokenType.Injective),
+                new Token(57, 2, "relation", TokenType.Relation),
+                new Token(66, 2, "slot", TokenType.Identifier),
+                new Token(70, 2, ":", TokenType.Colon),
+                new Token(72, 2, "Slot", TokenType.Symbol),
+                new Token(81, 3, "relation", TokenType.Relation),
+                new Token(90, 3, "room", TokenType.Identifier),
+                new Token(94, 3, ":", TokenType.Colon),
+                new Token(96, 3, "Room", TokenType.Symbol),
+                new Token(101, 4, "}", TokenType.RightBrace),
+                new Token(102, 4, "", TokenType.Eof))),
         new ScannerTestCase(
             "scanner/facts.peg",
             List.of(
                 new Token(0, 1, "facts", TokenType.Facts),
                 new Token(6, 1, "{", TokenType.LeftBrace),
-                new Token(12, 1, "Slot", TokenType.Symbol),
-                new Token(17, 1, "=", TokenType.Equal),
-                new Token(19, 1, "{", TokenType.LeftBrace),
-                new Token(29, 1, "(", TokenType.LeftParen),
-                new Token(30, 1, "\"Monday\"", TokenType.String),
-                new Token(38, 1, ",", TokenType.Comma),
-                new Token(40, 1, "LocalTime", TokenType.Symbol),
-                new Token(49, 1, ".", TokenType.Dot),
-                new Token(50, 1, "of", TokenType.Identifier),
-                new Token(52, 1, "(", TokenType.LeftParen),
-                new Token(53, 1, "8", TokenType.Number),
-                new Token(54, 1, ",", TokenType.Comma),
-                new Token(56, 1, "30", TokenType.Number),
-                new Token(58, 1, ")", TokenType.RightParen),
-                new Token(59, 1, ")", TokenType.RightParen),
-                new Token(60, 1, ",", TokenType.Comma),
-                new Token(66, 1, "}", TokenType.RightBrace),
-                new Token(68, 1, "}", TokenType.RightBrace),
-                new Token(69, 1, "", TokenType.Eof))),
+                new Token(12, 2, "Slot", TokenType.Symbol),
+                new Token(17, 2, "=", TokenType.Equal),
+                new Token(19, 2, "{", TokenType.LeftBrace),
+                new Token(29, 3, "(", TokenType.LeftParen),
+                new Token(30, 3, "\"Monday\"", TokenType.String),
+                new Token(38, 3, ",", TokenType.Comma),
+                new Token(40, 3, "LocalTime", TokenType.Symbol),
+                new Token(49, 3, ".", TokenType.Dot),
+                new Token(50, 3, "of", TokenType.Identifier),
+                new Token(52, 3, "(", TokenType.LeftParen),
+                new Token(53, 3, "8", TokenType.Number),
+                new Token(54, 3, ",", TokenType.Comma),
+                new Token(56, 3, "30", TokenType.Number),
+                new Token(58, 3, ")", TokenType.RightParen),
+                new Token(59, 3, ")", TokenType.RightParen),
+                new Token(60, 3, ",", TokenType.Comma),
+                new Token(66, 4, "}", TokenType.RightBrace),
+                new Token(68, 5, "}", TokenType.RightBrace),
+                new Token(69, 5, "", TokenType.Eof))),
         new ScannerTestCase(
             "scanner/constraint.peg",
             List.of(
-                new Token(1, 1, "constraint", TokenType.Constraint),
-                new Token(12, 1, "{", TokenType.LeftBrace),
-                new Token(18, 1, "forall", TokenType.Forall),
-                new Token(25, 1, "l1", TokenType.Identifier),
-                new Token(27, 1, ",", TokenType.Comma),
-                new Token(29, 1, "l2", TokenType.Identifier),
-                new Token(32, 1, "in", TokenType.In),
-                new Token(35, 1, "Lesson", TokenType.Symbol),
-                new Token(41, 1, ":", TokenType.Colon),
-                new Token(51, 1, "(", TokenType.LeftParen),
-                new Token(52, 1, "l1", TokenType.Identifier),
-                new Token(55, 1, "!=", TokenType.BangEqual),
-                new Token(58, 1, "l2", TokenType.Identifier),
-                new Token(61, 1, "and", TokenType.And),
-                new Token(65, 1, "l1", TokenType.Identifier),
-                new Token(67, 1, ".", TokenType.Dot),
-                new Token(68, 1, "slot", TokenType.Identifier),
-                new Token(73, 1, "==", TokenType.EqualEqual),
-                new Token(76, 1, "l2", TokenType.Identifier),
-                new Token(78, 1, ".", TokenType.Dot),
-                new Token(79, 1, "slot", TokenType.Identifier),
-                new Token(83, 1, ")", TokenType.RightParen),
-                new Token(93, 1, "implies", TokenType.Implies),
-                new Token(101, 1, "(", TokenType.LeftParen),
-                new Token(102, 1, "l1", TokenType.Identifier),
-                new Token(104, 1, ".", TokenType.Dot),
-                new Token(105, 1, "room", TokenType.Identifier),
-                new Token(110, 1, "!=", TokenType.BangEqual),
-                new Token(113, 1, "l2", TokenType.Identifier),
-                new Token(115, 1, ".", TokenType.Dot),
-                new Token(116, 1, "room", TokenType.Identifier),
-                new Token(121, 1, "or", TokenType.Or),
-                new Token(124, 1, "l1", TokenType.Identifier),
-                new Token(127, 1, "==", TokenType.EqualEqual),
-                new Token(130, 1, "l2", TokenType.Identifier),
-                new Token(132, 1, ")", TokenType.RightParen),
-                new Token(134, 1, "}", TokenType.RightBrace),
-                new Token(135, 1, "", TokenType.Eof))),
+                new Token(1, 2, "constraint", TokenType.Constraint),
+                new Token(12, 2, "{", TokenType.LeftBrace),
+                new Token(18, 3, "forall", TokenType.Forall),
+                new Token(25, 3, "l1", TokenType.Identifier),
+                new Token(27, 3, ",", TokenType.Comma),
+                new Token(29, 3, "l2", TokenType.Identifier),
+                new Token(32, 3, "in", TokenType.In),
+                new Token(35, 3, "Lesson", TokenType.Symbol),
+                new Token(41, 3, ":", TokenType.Colon),
+                new Token(51, 4, "(", TokenType.LeftParen),
+                new Token(52, 4, "l1", TokenType.Identifier),
+                new Token(55, 4, "!=", TokenType.BangEqual),
+                new Token(58, 4, "l2", TokenType.Identifier),
+                new Token(61, 4, "and", TokenType.And),
+                new Token(65, 4, "l1", TokenType.Identifier),
+                new Token(67, 4, ".", TokenType.Dot),
+                new Token(68, 4, "slot", TokenType.Identifier),
+                new Token(73, 4, "==", TokenType.EqualEqual),
+                new Token(76, 4, "l2", TokenType.Identifier),
+                new Token(78, 4, ".", TokenType.Dot),
+                new Token(79, 4, "slot", TokenType.Identifier),
+                new Token(83, 4, ")", TokenType.RightParen),
+                new Token(93, 5, "implies", TokenType.Implies),
+                new Token(101, 5, "(", TokenType.LeftParen),
+                new Token(102, 5, "l1", TokenType.Identifier),
+                new Token(104, 5, ".", TokenType.Dot),
+                new Token(105, 5, "room", TokenType.Identifier),
+                new Token(110, 5, "!=", TokenType.BangEqual),
+                new Token(113, 5, "l2", TokenType.Identifier),
+                new Token(115, 5, ".", TokenType.Dot),
+                new Token(116, 5, "room", TokenType.Identifier),
+                new Token(121, 5, "or", TokenType.Or),
+                new Token(124, 5, "l1", TokenType.Identifier),
+                new Token(127, 5, "==", TokenType.EqualEqual),
+                new Token(130, 5, "l2", TokenType.Identifier),
+                new Token(132, 5, ")", TokenType.RightParen),
+                new Token(134, 6, "}", TokenType.RightBrace),
+                new Token(135, 6, "", TokenType.Eof))),
         new ScannerTestCase(
             "scanner/exists.peg",
             List.of(
-                new Token(1, 1, "constraint", TokenType.Constraint),
-                new Token(12, 1, "{", TokenType.LeftBrace),
-                new Token(18, 1, "exists", TokenType.Exists),
-                new Token(25, 1, "l", TokenType.Identifier),
-                new Token(27, 1, "in", TokenType.In),
-                new Token(30, 1, "Lesson", TokenType.Symbol),
-                new Token(36, 1, ":", TokenType.Colon),
-                new Token(46, 1, "l", TokenType.Identifier),
-                new Token(47, 1, ".", TokenType.Dot),
-                new Token(48, 1, "room", TokenType.Identifier),
-                new Token(53, 1, "==", TokenType.EqualEqual),
-                new Token(56, 1, "\"Room A\"", TokenType.String),
-                new Token(65, 1, "}", TokenType.RightBrace),
-                new Token(66, 1, "", TokenType.Eof))));
+                new Token(1, 2, "constraint", TokenType.Constraint),
+                new Token(12, 2, "{", TokenType.LeftBrace),
+                new Token(18, 3, "exists", TokenType.Exists),
+                new Token(25, 3, "l", TokenType.Identifier),
+                new Token(27, 3, "in", TokenType.In),
+                new Token(30, 3, "Lesson", TokenType.Symbol),
+                new Token(36, 3, ":", TokenType.Colon),
+                new Token(46, 4, "l", TokenType.Identifier),
+                new Token(47, 4, ".", TokenType.Dot),
+                new Token(48, 4, "room", TokenType.Identifier),
+                new Token(53, 4, "==", TokenType.EqualEqual),
+                new Token(56, 4, "\"Room A\"", TokenType.String),
+                new Token(65, 5, "}", TokenType.RightBrace),
+                new Token(66, 5, "", TokenType.Eof))),
+        new ScannerTestCase(
+            "scanner/objectives.peg",
+            List.of(
+                new Token(0, 1, "soft", TokenType.Soft),
+                new Token(5, 1, "3", TokenType.Number),
+                new Token(7, 1, "{", TokenType.LeftBrace),
+                new Token(13, 2, "exists", TokenType.Exists),
+                new Token(20, 2, "l", TokenType.Identifier),
+                new Token(22, 2, "in", TokenType.In),
+                new Token(25, 2, "Lesson", TokenType.Symbol),
+                new Token(31, 2, ":", TokenType.Colon),
+                new Token(33, 2, "l", TokenType.Identifier),
+                new Token(34, 2, ".", TokenType.Dot),
+                new Token(35, 2, "room", TokenType.Identifier),
+                new Token(40, 2, "==", TokenType.EqualEqual),
+                new Token(43, 2, "\"Room A\"", TokenType.String),
+                new Token(52, 3, "}", TokenType.RightBrace),
+                new Token(54, 4, "minimize", TokenType.Minimize),
+                new Token(63, 4, "{", TokenType.LeftBrace),
+                new Token(65, 4, "forall", TokenType.Forall),
+                new Token(72, 4, "l", TokenType.Identifier),
+                new Token(74, 4, "in", TokenType.In),
+                new Token(77, 4, "Lesson", TokenType.Symbol),
+                new Token(83, 4, ":", TokenType.Colon),
+                new Token(85, 4, "l", TokenType.Identifier),
+                new Token(86, 4, ".", TokenType.Dot),
+                new Token(87, 4, "room", TokenType.Identifier),
+                new Token(92, 4, "==", TokenType.EqualEqual),
+                new Token(95, 4, "\"Room B\"", TokenType.String),
+                new Token(104, 4, "}", TokenType.RightBrace),
+                new Token(106, 5, "maximize", TokenType.Maximize),
+                new Token(115, 5, "{", TokenType.LeftBrace),
+                new Token(117, 5, "forall", TokenType.Forall),
+                new Token(124, 5, "l", TokenType.Identifier),
+                new Token(126, 5, "in", TokenType.In),
+                new Token(129, 5, "Lesson", TokenType.Symbol),
+                new Token(135, 5, ":", TokenType.Colon),
+                new Token(137, 5, "l", TokenType.Identifier),
+                new Token(138, 5, ".", TokenType.Dot),
+                new Token(139, 5, "room", TokenType.Identifier),
+                new Token(144, 5, "==", TokenType.EqualEqual),
+                new Token(147, 5, "\"Room A\"", TokenType.String),
+                new Token(156, 5, "}", TokenType.RightBrace),
+                new Token(158, 6, "", TokenType.Eof))));
   }
 }